@@ -0,0 +1,72 @@
+/**
+ * Combines the Prism core and the Prism plugins that are used by the source code view into a single script and a
+ * single stylesheet. Since the plugins of the view depend on the plugin profile (see 'PluginProfile.java'), one
+ * script and one stylesheet are created for each profile. Each bundle gets a content hash in its file name, so it
+ * can be cached by browsers forever. Additionally, gzip and brotli compressed variants are created, so the server
+ * does not need to compress the bundles on each request. The file names of the bundles are stored in
+ * 'bundle.properties'.
+ */
+const fs = require('fs');
+const path = require('path');
+const crypto = require('crypto');
+const zlib = require('zlib');
+
+const PROFILES = {
+  FULL: ['line-highlight', 'line-numbers', 'match-braces', 'keep-markup'],
+  LEAN: ['line-highlight', 'line-numbers', 'keep-markup'],
+  MINIMAL: ['line-highlight', 'keep-markup']
+};
+
+const prism = path.dirname(require.resolve('prismjs/package.json'));
+const target = path.join(__dirname, '..', 'src', 'main', 'resources', 'io', 'jenkins', 'plugins', 'prism', 'bundle');
+
+function read(file) {
+  return fs.readFileSync(path.join(prism, file), 'utf8').trim();
+}
+
+function minifyCss(css) {
+  return css
+    .replace(/\/\*[\s\S]*?\*\//g, '')
+    .replace(/\s+/g, ' ')
+    .replace(/\s*([{};,>])\s*/g, '$1')
+    .replace(/;}/g, '}')
+    .trim();
+}
+
+function write(prefix, extension, content) {
+  const hash = crypto.createHash('sha256').update(content).digest('hex').substring(0, 16);
+  const name = `${prefix}.${hash}.${extension}`;
+  const data = Buffer.from(content, 'utf8');
+
+  fs.writeFileSync(path.join(target, name), data);
+  fs.writeFileSync(path.join(target, `${name}.gz`), zlib.gzipSync(data, {level: zlib.constants.Z_BEST_COMPRESSION}));
+  fs.writeFileSync(path.join(target, `${name}.br`), zlib.brotliCompressSync(data, {
+    params: {
+      [zlib.constants.BROTLI_PARAM_MODE]: zlib.constants.BROTLI_MODE_TEXT,
+      [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+      [zlib.constants.BROTLI_PARAM_SIZE_HINT]: data.length
+    }
+  }));
+  return name;
+}
+
+fs.rmSync(target, {recursive: true, force: true});
+fs.mkdirSync(target, {recursive: true});
+
+const manifest = ['# Generated by bin/build-prism-bundle.js, do not edit'];
+for (const [profile, plugins] of Object.entries(PROFILES)) {
+  const script = [read('components/prism-core.min.js')]
+    .concat(plugins.map(plugin => read(`plugins/${plugin}/prism-${plugin}.min.js`)))
+    .join(';\n') + ';\n';
+  const stylesheet = plugins
+    .filter(plugin => fs.existsSync(path.join(prism, 'plugins', plugin, `prism-${plugin}.css`)))
+    .map(plugin => minifyCss(read(`plugins/${plugin}/prism-${plugin}.css`)))
+    .join('\n') + '\n';
+
+  const scriptName = write('prism-bundle', 'js', script);
+  const stylesheetName = write('prism-bundle', 'css', stylesheet);
+  manifest.push(`${profile}.script=${scriptName}`, `${profile}.stylesheet=${stylesheetName}`);
+  console.log(`Created Prism bundles ${scriptName} and ${stylesheetName} for profile ${profile} in ${target}`);
+}
+
+fs.writeFileSync(path.join(target, 'bundle.properties'), manifest.join('\n') + '\n');
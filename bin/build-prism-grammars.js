@@ -0,0 +1,25 @@
+/**
+ * Resolves the dependency closure of each Prism language grammar at build time. The result is stored as a
+ * properties file that maps the language class of a code block (e.g. 'language-erb') to the ordered list of
+ * grammar components that need to be loaded (e.g. 'clike,ruby,markup,markup-templating,erb'). The source code
+ * view uses this list to load the required grammars directly, so the Prism autoloader is not required.
+ */
+const fs = require('fs');
+const path = require('path');
+const components = require('prismjs/components.json');
+const getLoader = require('prismjs/dependencies');
+
+const target = path.join(__dirname, '..', 'src', 'main', 'resources', 'io', 'jenkins', 'plugins', 'prism',
+  'grammars.properties');
+
+const lines = ['# Generated by bin/build-prism-grammars.js, do not edit'];
+Object.entries(components.languages)
+  .filter(([id]) => id !== 'meta')
+  .forEach(([id, language]) => {
+    const grammars = getLoader(components, [id]).getIds().join(',');
+    const aliases = [].concat(language.alias || []);
+    [id, ...aliases].forEach(name => lines.push(`language-${name}=${grammars}`));
+  });
+
+fs.writeFileSync(target, lines.join('\n') + '\n');
+console.log(`Resolved ${lines.length - 1} Prism grammars to ${target}`);
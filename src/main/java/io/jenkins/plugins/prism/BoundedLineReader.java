@@ -0,0 +1,266 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Reads the lines of a source code file while enforcing limits on the size, the number of lines, and the length of
+ * each line. Reading stops as soon as the size or the number of lines exceeds the limit. The size is measured in
+ * bytes of the UTF-8 encoding of the characters, so it can be compared with the size of a file in the file system.
+ * Lines that are longer than the maximum line length are truncated: the remaining characters of such a line are
+ * skipped without storing them. So the memory required to read a file is bounded by the maximum line length, even for
+ * minified files that consist of a single huge line.
+ *
+ * <p>
+ * The limits can be checked before the lines are shown by {@link #scan() scanning} the file: then the lines are
+ * read without storing them at all.
+ * </p>
+ */
+class BoundedLineReader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int UNLIMITED = 0;
+
+    /** The limits that can be exceeded by a source code file. */
+    enum Limit {
+        /** The number of bytes. */
+        SIZE,
+        /** The number of lines. */
+        LINES,
+        /** The number of characters of a single line. */
+        LINE_LENGTH
+    }
+
+    private final Reader reader;
+    private final long maximumSize;
+    private final int maximumLines;
+    private final int maximumLineLength;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int length;
+    private long size;
+    private int lines;
+    private boolean isEndOfFile;
+    private final EnumSet<Limit> exceededLimits = EnumSet.noneOf(Limit.class);
+
+    /**
+     * Creates a new {@link BoundedLineReader}.
+     *
+     * @param reader
+     *         the reader to read the source code from
+     * @param maximumSize
+     *         the maximum number of bytes to read, 0 disables this limit
+     * @param maximumLines
+     *         the maximum number of lines to read, 0 disables this limit
+     * @param maximumLineLength
+     *         the maximum number of characters of a line, 0 disables this limit
+     */
+    BoundedLineReader(final Reader reader, final long maximumSize, final int maximumLines,
+            final int maximumLineLength) {
+        this.reader = reader;
+        this.maximumSize = maximumSize;
+        this.maximumLines = maximumLines;
+        this.maximumLineLength = maximumLineLength;
+    }
+
+    /**
+     * Creates a new {@link BoundedLineReader} that only truncates long lines.
+     *
+     * @param reader
+     *         the reader to read the source code from
+     * @param maximumLineLength
+     *         the maximum number of characters of a line, 0 disables this limit
+     */
+    BoundedLineReader(final Reader reader, final int maximumLineLength) {
+        this(reader, UNLIMITED, UNLIMITED, maximumLineLength);
+    }
+
+    /**
+     * Returns the limits that have been exceeded while reading the lines so far.
+     *
+     * @return the exceeded limits
+     */
+    Set<Limit> getExceededLimits() {
+        return EnumSet.copyOf(exceededLimits);
+    }
+
+    /**
+     * Returns the lines of the source code file. The stream is lazy: the lines are read while the stream is consumed.
+     *
+     * @return the lines
+     */
+    Stream<String> lines() {
+        Iterator<String> iterator = new Iterator<>() {
+            @CheckForNull
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = readLine();
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String line = next;
+                next = null;
+                return line;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * Reads all remaining lines without storing them and closes the reader. Afterward, all limits that are exceeded
+     * by the source code file are known.
+     *
+     * @return the exceeded limits
+     */
+    Set<Limit> scan() {
+        try {
+            boolean hasLine = readLine(null);
+            while (hasLine) {
+                hasLine = readLine(null);
+            }
+        }
+        finally {
+            close();
+        }
+        return getExceededLimits();
+    }
+
+    @CheckForNull
+    private String readLine() {
+        StringBuilder line = new StringBuilder();
+        if (readLine(line)) {
+            return line.toString();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @param line
+     *         the buffer that will receive the characters of the line, or {@code null} if the line should be skipped
+     *
+     * @return {@code true} if a line has been read, {@code false} if the end of the file (or a limit) has been reached
+     */
+    private boolean readLine(@CheckForNull final StringBuilder line) {
+        if (!fill()) {
+            return false;
+        }
+        if (maximumLines != UNLIMITED && lines >= maximumLines) {
+            stop(Limit.LINES);
+            return false;
+        }
+
+        int lineLength = 0;
+        boolean isCarriageReturn = false; // a carriage return is only part of the line if no line feed follows
+        while (fill()) {
+            char character = buffer[position];
+            int bytes = getEncodedLength(character);
+            if (maximumSize != UNLIMITED && size + bytes > maximumSize) {
+                stop(Limit.SIZE);
+                break;
+            }
+            position++;
+            size += bytes;
+            if (character == '\n') {
+                break;
+            }
+            if (isCarriageReturn) {
+                lineLength = append(line, lineLength, '\r');
+            }
+            isCarriageReturn = character == '\r';
+            if (!isCarriageReturn) {
+                lineLength = append(line, lineLength, character);
+            }
+        }
+        lines++;
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes of the UTF-8 encoding of the specified character. A surrogate pair is encoded with
+     * four bytes, i.e. two bytes for each of its characters.
+     */
+    private static int getEncodedLength(final char character) {
+        if (character < 0x80) {
+            return 1;
+        }
+        if (character < 0x800 || Character.isSurrogate(character)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private int append(@CheckForNull final StringBuilder line, final int lineLength, final char character) {
+        if (maximumLineLength == UNLIMITED || lineLength < maximumLineLength) {
+            if (line != null) {
+                line.append(character);
+            }
+            return lineLength + 1;
+        }
+        exceededLimits.add(Limit.LINE_LENGTH);
+        return lineLength;
+    }
+
+    /**
+     * Ensures that the buffer contains at least one character that has not been read yet.
+     *
+     * @return {@code true} if there is a character to read, {@code false} if the end of the file (or a limit) has been
+     *         reached
+     */
+    private boolean fill() {
+        if (isEndOfFile) {
+            return false;
+        }
+        if (position < length) {
+            return true;
+        }
+        try {
+            length = reader.read(buffer);
+            position = 0;
+            if (length <= 0) {
+                isEndOfFile = true;
+                return false;
+            }
+            return true;
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private void stop(final Limit limit) {
+        exceededLimits.add(limit);
+        isEndOfFile = true;
+    }
+
+    private void close() {
+        try {
+            reader.close();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
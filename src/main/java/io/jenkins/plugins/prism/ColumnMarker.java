@@ -0,0 +1,221 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Marks the column ranges of {@link Marker markers} in the lines of a source code file. A marker may span several
+ * lines: then the range starts at the first column of the first line and ends at the last column of the last line.
+ * Several markers may mark different (or overlapping) ranges of the same line.
+ *
+ * <p>
+ * The marked ranges are enclosed in {@code code-mark} spans while the line is escaped: each line is processed in a
+ * single pass without creating intermediate strings. The spans are closed at the end of each line so that each
+ * line is a well-formed HTML fragment.
+ * </p>
+ *
+ * <p>
+ * The markers are sorted by their first line once. While the lines are processed in ascending order, a cursor
+ * advances through the sorted markers and only the markers that contain the current line are kept as active markers.
+ * So each marker is visited only once when entering and once when leaving its lines, and processing a region
+ * requires a single linear pass even if many markers have been merged into the region.
+ * </p>
+ */
+class ColumnMarker {
+    private static final String OPENING_TAG = "<span class='code-mark'>";
+    private static final String CLOSING_TAG = "</span>";
+    private static final int END_OF_LINE = Integer.MAX_VALUE;
+
+    private final List<Marker> markers;
+    private final List<Marker> active = new ArrayList<>();
+    private int cursor;
+    private int currentLine;
+    private int[] ranges = new int[8];
+
+    /**
+     * Creates a new {@link ColumnMarker} for the specified markers. Markers without columns are ignored.
+     *
+     * @param markers
+     *         the markers to show
+     */
+    ColumnMarker(final Collection<Marker> markers) {
+        this.markers = markers.stream()
+                .filter(marker -> marker.getColumnStart() > 0)
+                .sorted(Comparator.comparingInt(Marker::getLineStart))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns whether the specified line contains columns that should be marked.
+     *
+     * @param lineNumber
+     *         the line number (lines start at 1)
+     *
+     * @return {@code true} if the line contains marked columns, {@code false} otherwise
+     */
+    boolean isMarked(final int lineNumber) {
+        advanceTo(lineNumber);
+
+        return !active.isEmpty();
+    }
+
+    /**
+     * Updates the active markers so that they contain exactly the markers that contain the specified line. The lines
+     * are typically processed in ascending order: then the cursor only moves forward. If a previous line is requested,
+     * then the cursor starts again with the first marker.
+     */
+    private void advanceTo(final int lineNumber) {
+        if (lineNumber == currentLine) {
+            return;
+        }
+        if (lineNumber < currentLine) {
+            cursor = 0;
+            active.clear();
+        }
+        currentLine = lineNumber;
+        while (cursor < markers.size() && markers.get(cursor).getLineStart() <= lineNumber) {
+            active.add(markers.get(cursor));
+            cursor++;
+        }
+        active.removeIf(marker -> marker.getLineEnd() < lineNumber);
+    }
+
+    /**
+     * Escapes the specified line and encloses the marked columns with {@code code-mark} spans.
+     *
+     * @param line
+     *         the line to write
+     * @param lineNumber
+     *         the line number (lines start at 1)
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    void writeLine(final String line, final int lineNumber, final Writer writer) throws IOException {
+        writeLine(line, lineNumber, 0, line.length(), writer);
+    }
+
+    /**
+     * Escapes the specified window of the line and encloses the marked columns within this window with
+     * {@code code-mark} spans. The characters outside the window are not written.
+     *
+     * @param line
+     *         the line to write
+     * @param lineNumber
+     *         the line number (lines start at 1)
+     * @param from
+     *         the index of the first character of the window
+     * @param to
+     *         the index after the last character of the window
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    void writeLine(final String line, final int lineNumber, final int from, final int to, final Writer writer)
+            throws IOException {
+        int count = collectRanges(line, lineNumber);
+
+        int position = from;
+        int index = 0;
+        while (index < count) {
+            int start = ranges[2 * index];
+            int end = ranges[2 * index + 1];
+            index++;
+            while (index < count && ranges[2 * index] <= end) { // merge overlapping or adjacent ranges
+                end = Math.max(end, ranges[2 * index + 1]);
+                index++;
+            }
+            start = Math.max(start, position);
+            end = Math.min(end, to);
+            if (start < end) {
+                HtmlEscaper.escape(line, position, start, writer);
+                writer.write(OPENING_TAG);
+                HtmlEscaper.escape(line, start, end, writer);
+                writer.write(CLOSING_TAG);
+                position = end;
+            }
+        }
+        HtmlEscaper.escape(line, position, to, writer);
+    }
+
+    /**
+     * Returns the range of the line that contains all marked columns.
+     *
+     * @param line
+     *         the line
+     * @param lineNumber
+     *         the line number (lines start at 1)
+     *
+     * @return the index of the first marked character and the index after the last marked character, or an empty
+     *         range at the start of the line if the line contains no marked columns
+     */
+    int[] getMarkedRange(final String line, final int lineNumber) {
+        int count = collectRanges(line, lineNumber);
+        if (count == 0) {
+            return new int[] {0, 0};
+        }
+        int end = 0;
+        for (int index = 0; index < count; index++) {
+            end = Math.max(end, ranges[2 * index + 1]);
+        }
+        return new int[] {ranges[0], end};
+    }
+
+    /**
+     * Collects the marked ranges of the specified line as pairs of start (inclusive) and end (exclusive) indices in
+     * the field {@code ranges}. The ranges are sorted by their start index.
+     *
+     * @return the number of ranges
+     */
+    private int collectRanges(final String line, final int lineNumber) {
+        advanceTo(lineNumber);
+
+        int count = 0;
+        for (Marker marker : active) {
+            int first = marker.getLineStart() == lineNumber ? marker.getColumnStart() : 1;
+            int last = marker.getLineEnd() == lineNumber ? getColumnEnd(marker) : END_OF_LINE;
+            if (isValid(line, first, last)) {
+                if (2 * count + 1 >= ranges.length) {
+                    ranges = Arrays.copyOf(ranges, 2 * ranges.length);
+                }
+                insertSorted(count, first - 1, Math.min(last, line.length()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void insertSorted(final int count, final int start, final int end) {
+        int index = count;
+        while (index > 0 && ranges[2 * (index - 1)] > start) {
+            ranges[2 * index] = ranges[2 * (index - 1)];
+            ranges[2 * index + 1] = ranges[2 * (index - 1) + 1];
+            index--;
+        }
+        ranges[2 * index] = start;
+        ranges[2 * index + 1] = end;
+    }
+
+    private int getColumnEnd(final Marker marker) {
+        return marker.getColumnEnd() == 0 ? END_OF_LINE : marker.getColumnEnd();
+    }
+
+    /**
+     * Returns whether the range is valid for the specified line. The last column may point to the line terminator
+     * (i.e., one column after the last character of the line).
+     */
+    private boolean isValid(final String line, final int first, final int last) {
+        return first >= 1 && first <= last && first <= line.length()
+                && (last == END_OF_LINE || last <= line.length() + 1);
+    }
+}
@@ -0,0 +1,103 @@
+package io.jenkins.plugins.prism;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.apache.commons.lang3.StringUtils;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * A strong HTTP entity tag (see RFC 9110, section 8.8.3) for a rendered view. The tag is the SHA-256 hash of all
+ * parts that influence the rendered HTML: if none of these parts changes, then the view does not change either, so a
+ * conditional request with a matching {@code If-None-Match} header can be answered with {@code 304 Not Modified}
+ * without rendering the view again.
+ */
+final class EntityTag {
+    private final String value;
+
+    private EntityTag(final String value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the value of the tag, i.e. the quoted hash that will be sent in the {@code ETag} header.
+     *
+     * @return the value of the tag
+     */
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns whether this tag matches one of the tags of the specified {@code If-None-Match} header. As required for
+     * {@code If-None-Match}, the tags are compared using the weak comparison, i.e., the prefix {@code W/} of a weak
+     * tag is ignored.
+     *
+     * @param ifNoneMatch
+     *         the value of the {@code If-None-Match} header, might be {@code null} if the header is not set
+     *
+     * @return {@code true} if the tag matches, {@code false} otherwise
+     */
+    boolean matches(@CheckForNull final String ifNoneMatch) {
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        for (String tag : StringUtils.split(ifNoneMatch, ',')) {
+            String trimmed = StringUtils.removeStart(tag.trim(), "W/");
+            if ("*".equals(trimmed) || value.equals(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    /**
+     * Creates {@link EntityTag} instances using the builder pattern. The parts are hashed in the order they are added.
+     */
+    static class EntityTagBuilder {
+        private final MessageDigest digest;
+
+        /**
+         * Creates a new builder without any parts.
+         */
+        EntityTagBuilder() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            }
+            catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException("SHA-256 is not available", exception);
+            }
+        }
+
+        /**
+         * Adds the specified part to the tag.
+         *
+         * @param part
+         *         the part to add, the string representation of the part will be hashed
+         *
+         * @return this builder
+         */
+        EntityTagBuilder add(@CheckForNull final Object part) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0); // separates the parts, so that "ab" + "c" differs from "a" + "bc"
+            return this;
+        }
+
+        /**
+         * Creates the entity tag from the parts that have been added so far.
+         *
+         * @return the entity tag
+         */
+        EntityTag build() {
+            return new EntityTag('"' + HexFormat.of().formatHex(digest.digest()) + '"');
+        }
+    }
+}
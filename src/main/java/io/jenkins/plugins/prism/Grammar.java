@@ -0,0 +1,221 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * A set of token rules that splits a line of source code into tokens. The tokens are written as HTML using the same
+ * {@code token} span classes as Prism.js, so that the Prism themes can be used to style the result. A grammar is
+ * immutable and can be shared by several threads, the state that is carried over from one line to the next one (e.g.,
+ * an unterminated block comment) is returned by {@link #tokenize(CharSequence, int, Writer)}.
+ *
+ * <p>
+ * The rules are combined into a single regular expression: at each position the rule that matches first wins. If
+ * several rules match at the same position, then the rule that has been defined first wins.
+ * </p>
+ */
+class Grammar {
+    /** State of a line that does not continue a multi-line token of the previous line. */
+    static final int INITIAL_STATE = -1;
+
+    private final List<Rule> rules;
+    private final int[] groups;
+    private final Pattern pattern;
+
+    private Grammar(final List<Rule> rules) {
+        this.rules = rules;
+
+        groups = new int[rules.size()];
+        StringBuilder regex = new StringBuilder();
+        int group = 1;
+        for (int i = 0; i < rules.size(); i++) {
+            Pattern start = rules.get(i).start;
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            regex.append('(').append(start.pattern()).append(')');
+            groups[i] = group;
+            group += 1 + start.matcher("").groupCount();
+        }
+        pattern = Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Tokenizes the specified line and writes the escaped tokens as HTML to the specified writer.
+     *
+     * @param line
+     *         the line to tokenize
+     * @param state
+     *         the state returned for the previous line, or {@link #INITIAL_STATE} for the first line
+     * @param writer
+     *         the writer to write the HTML to, or {@code null} if the line should be skipped
+     *
+     * @return the state for the next line
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    int tokenize(final CharSequence line, final int state, @CheckForNull final Writer writer) throws IOException {
+        int position = 0;
+        if (state != INITIAL_STATE) {
+            Rule open = rules.get(state);
+            Matcher end = open.end.matcher(line);
+            if (!end.find()) {
+                writeToken(open, line, 0, line.length(), writer);
+                return state;
+            }
+            writeToken(open, line, 0, end.end(), writer);
+            position = end.end();
+        }
+
+        Matcher matcher = pattern.matcher(line);
+        while (position < line.length() && matcher.find(position)) {
+            int index = findMatchingRule(matcher);
+            Rule rule = rules.get(index);
+            int start = matcher.start();
+            int end = matcher.end();
+            escape(line, position, start, writer);
+            if (rule.end != null) {
+                Matcher closing = rule.end.matcher(line);
+                if (!closing.find(end)) {
+                    writeToken(rule, line, start, line.length(), writer);
+                    return index;
+                }
+                end = closing.end();
+            }
+            if (end == start) { // guard against rules that match the empty string
+                escape(line, start, start + 1, writer);
+                position = start + 1;
+            }
+            else {
+                writeToken(rule, line, start, end, writer);
+                position = end;
+            }
+        }
+        escape(line, position, line.length(), writer);
+        return INITIAL_STATE;
+    }
+
+    private int findMatchingRule(final Matcher matcher) {
+        for (int i = 0; i < groups.length; i++) {
+            if (matcher.start(groups[i]) >= 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No rule matched " + matcher.group());
+    }
+
+    private void writeToken(final Rule rule, final CharSequence line, final int start, final int end,
+            @CheckForNull final Writer writer) throws IOException {
+        if (writer == null) {
+            return;
+        }
+        writer.write("<span class=\"token ");
+        writer.write(rule.type);
+        writer.write("\">");
+        if (rule.inside == null) {
+            escape(line, start, end, writer);
+        }
+        else {
+            rule.inside.tokenize(line.subSequence(start, end), INITIAL_STATE, writer);
+        }
+        writer.write("</span>");
+    }
+
+    private void escape(final CharSequence line, final int start, final int end, @CheckForNull final Writer writer)
+            throws IOException {
+        if (writer != null) {
+            HtmlEscaper.escape(line, start, end, writer);
+        }
+    }
+
+    /**
+     * A rule that matches a token of a given type.
+     */
+    private static final class Rule {
+        private final String type;
+        private final Pattern start;
+        @CheckForNull
+        private final Pattern end;
+        @CheckForNull
+        private final Grammar inside;
+
+        Rule(final String type, final Pattern start, @CheckForNull final Pattern end,
+                @CheckForNull final Grammar inside) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.inside = inside;
+        }
+    }
+
+    /**
+     * Creates {@link Grammar grammars} using the builder pattern.
+     */
+    static class GrammarBuilder {
+        private final List<Rule> rules = new ArrayList<>();
+
+        /**
+         * Adds a rule for a token that is contained in a single line.
+         *
+         * @param type
+         *         the type of the token, i.e. the Prism token classes
+         * @param regex
+         *         the regular expression that matches the token
+         *
+         * @return this builder
+         */
+        GrammarBuilder token(final String type, final String regex) {
+            rules.add(new Rule(type, Pattern.compile(regex), null, null));
+            return this;
+        }
+
+        /**
+         * Adds a rule for a token that is contained in a single line and that contains nested tokens.
+         *
+         * @param type
+         *         the type of the token, i.e. the Prism token classes
+         * @param regex
+         *         the regular expression that matches the token
+         * @param inside
+         *         the grammar that will be used to tokenize the content of the token
+         *
+         * @return this builder
+         */
+        GrammarBuilder token(final String type, final String regex, final Grammar inside) {
+            rules.add(new Rule(type, Pattern.compile(regex), null, inside));
+            return this;
+        }
+
+        /**
+         * Adds a rule for a token that might span several lines, e.g. a block comment.
+         *
+         * @param type
+         *         the type of the token, i.e. the Prism token classes
+         * @param startRegex
+         *         the regular expression that matches the start of the token
+         * @param endRegex
+         *         the regular expression that matches the end of the token
+         *
+         * @return this builder
+         */
+        GrammarBuilder block(final String type, final String startRegex, final String endRegex) {
+            rules.add(new Rule(type, Pattern.compile(startRegex), Pattern.compile(endRegex), null));
+            return this;
+        }
+
+        /**
+         * Creates an immutable {@link Grammar} instance using the configured rules.
+         *
+         * @return the new grammar
+         */
+        Grammar build() {
+            return new Grammar(new ArrayList<>(rules));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.jenkins.plugins.prism;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.hm.hafner.util.VisibleForTesting;
+
+/**
+ * Counts the source code files whose highlighting has been aborted in the browser, since Prism did not finish within
+ * the configured time budget. Such timeouts are typically caused by grammars whose regular expressions backtrack
+ * catastrophically for some inputs: the counters show the administrators which files and languages are affected.
+ *
+ * <p>
+ * The counters are kept in memory only. The number of counted files is bounded: if the bound is exceeded, then the
+ * counter of the file that timed out least recently will be evicted.
+ * </p>
+ */
+public class HighlightingTimeouts {
+    /** The maximum number of files that will be counted. */
+    static final int MAXIMUM_FILES = 100;
+
+    private static final HighlightingTimeouts INSTANCE = new HighlightingTimeouts(MAXIMUM_FILES);
+
+    /**
+     * Returns the counters that are shared by all source code views.
+     *
+     * @return the shared counters
+     */
+    static HighlightingTimeouts getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<String, HighlightingTimeout> timeouts;
+
+    @VisibleForTesting
+    HighlightingTimeouts(final int maximumFiles) {
+        timeouts = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 4011418520958377458L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, HighlightingTimeout> eldest) {
+                return size() > maximumFiles;
+            }
+        };
+    }
+
+    /**
+     * Records a timeout for the specified file and language.
+     *
+     * @param fileName
+     *         the name of the file that could not be highlighted
+     * @param language
+     *         the Prism language class that has been used to highlight the file
+     */
+    synchronized void record(final String fileName, final String language) {
+        timeouts.computeIfAbsent(language + '\n' + fileName, key -> new HighlightingTimeout(fileName, language))
+                .count++;
+    }
+
+    /**
+     * Returns the recorded timeouts, sorted by the number of timeouts (in descending order).
+     *
+     * @return the recorded timeouts
+     */
+    public synchronized List<HighlightingTimeout> getTimeouts() {
+        List<HighlightingTimeout> copy = new ArrayList<>();
+        for (HighlightingTimeout timeout : timeouts.values()) {
+            copy.add(new HighlightingTimeout(timeout));
+        }
+        copy.sort(Comparator.comparingLong(HighlightingTimeout::getCount).reversed());
+        return copy;
+    }
+
+    /**
+     * Removes all recorded timeouts.
+     */
+    public synchronized void clear() {
+        timeouts.clear();
+    }
+
+    /**
+     * The number of timeouts of a file that has been highlighted using a given language.
+     */
+    public static class HighlightingTimeout {
+        private final String fileName;
+        private final String language;
+        private long count;
+
+        HighlightingTimeout(final String fileName, final String language) {
+            this.fileName = fileName;
+            this.language = language;
+        }
+
+        HighlightingTimeout(final HighlightingTimeout copy) {
+            this(copy.fileName, copy.language);
+
+            count = copy.count;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
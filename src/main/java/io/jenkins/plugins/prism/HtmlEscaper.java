@@ -0,0 +1,124 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Escapes source code so that it can be embedded into the text content of an HTML element or into an attribute
+ * value. Only the characters {@code &}, {@code <}, {@code >}, {@code "}, and {@code '} are replaced by their entities,
+ * all other characters are written unchanged (the views are delivered using UTF-8). The text is processed in a single
+ * pass: the runs of characters that need no escaping are written as a block directly to the output, so no
+ * intermediate strings are created. The runs of a {@link CharBuffer} that is backed by an array (like the lines of a
+ * {@link WindowedLineReader}) are written directly from this array.
+ *
+ * <p>
+ * Since the escaped source code cannot contain any HTML elements, it does not need to be sanitized afterward.
+ * </p>
+ */
+final class HtmlEscaper {
+    /**
+     * Escapes the specified text and writes the result to the specified writer.
+     *
+     * @param text
+     *         the text to escape
+     * @param writer
+     *         the writer to write the escaped text to
+     *
+     * @throws IOException
+     *         if the text could not be written
+     */
+    static void escape(final CharSequence text, final Writer writer) throws IOException {
+        escape(text, 0, text.length(), writer);
+    }
+
+    /**
+     * Escapes the specified region of the text and writes the result to the specified writer.
+     *
+     * @param text
+     *         the text to escape
+     * @param start
+     *         the index of the first character to escape
+     * @param end
+     *         the index after the last character to escape
+     * @param writer
+     *         the writer to write the escaped text to
+     *
+     * @throws IOException
+     *         if the text could not be written
+     */
+    static void escape(final CharSequence text, final int start, final int end, final Writer writer)
+            throws IOException {
+        int unescaped = start;
+        for (int position = start; position < end; position++) {
+            String entity = getEntity(text.charAt(position));
+            if (entity != null) {
+                write(text, unescaped, position, writer);
+                writer.write(entity);
+                unescaped = position + 1;
+            }
+        }
+        write(text, unescaped, end, writer);
+    }
+
+    /**
+     * Escapes the specified text.
+     *
+     * @param text
+     *         the text to escape
+     *
+     * @return the escaped text
+     */
+    static String escape(final String text) {
+        try {
+            StringWriter writer = new StringWriter(text.length() + text.length() / 8);
+            escape(text, writer);
+            return writer.toString();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception); // cannot happen for a StringWriter
+        }
+    }
+
+    @CheckForNull
+    private static String getEntity(final char character) {
+        switch (character) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#39;";
+            default:
+                return null;
+        }
+    }
+
+    private static void write(final CharSequence text, final int start, final int end, final Writer writer)
+            throws IOException {
+        if (start < end) {
+            if (text instanceof String) {
+                writer.write((String) text, start, end - start);
+            }
+            else if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+                CharBuffer buffer = (CharBuffer) text; // the indices are relative to the position of the buffer
+                writer.write(buffer.array(), buffer.arrayOffset() + buffer.position() + start, end - start);
+            }
+            else {
+                writer.append(text, start, end);
+            }
+        }
+    }
+
+    private HtmlEscaper() {
+        // prevents instantiation
+    }
+}
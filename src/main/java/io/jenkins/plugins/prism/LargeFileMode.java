@@ -0,0 +1,40 @@
+package io.jenkins.plugins.prism;
+
+import org.jvnet.localizer.LocaleProvider;
+import org.jvnet.localizer.Localizable;
+import hudson.util.ListBoxModel;
+
+/**
+ * Defines how a source code file is shown if it exceeds one of the limits of the {@link PrismConfiguration}.
+ */
+public enum LargeFileMode {
+    /** Shows the source code as plain escaped text without syntax highlighting, up to the configured limits. */
+    PLAIN_TEXT(Messages._LargeFileMode_PLAIN_TEXT()),
+    /** Shows only the lines around the markers. */
+    EXCERPT(Messages._LargeFileMode_EXCERPT()),
+    /** Does not show the source code, only a link to download the file. */
+    DOWNLOAD(Messages._LargeFileMode_DOWNLOAD());
+
+    /**
+     * Returns all available {@link LargeFileMode} modes as a {@link ListBoxModel}.
+     *
+     * @return all modes
+     */
+    public static ListBoxModel fillItems() {
+        ListBoxModel items = new ListBoxModel();
+        for (LargeFileMode mode : values()) {
+            items.add(mode.getDisplayName(), mode.name());
+        }
+        return items;
+    }
+
+    private final Localizable localizable;
+
+    LargeFileMode(final Localizable localizable) {
+        this.localizable = localizable;
+    }
+
+    public String getDisplayName() {
+        return localizable.toString(LocaleProvider.getLocale());
+    }
+}
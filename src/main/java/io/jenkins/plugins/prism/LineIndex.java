@@ -0,0 +1,315 @@
+package io.jenkins.plugins.prism;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The byte offsets of the lines of a stored source code file. With such an index, a range of lines can be read by
+ * seeking directly to the offset of the first line of the range, rather than reading (and discarding) all lines
+ * before the range.
+ *
+ * <p>
+ * The index is persisted in a sidecar file next to the source code file (the name of the source code file with the
+ * suffix {@value #SUFFIX}). The sidecar file starts with the size and the modification time of the source code file,
+ * followed by the number of lines and the distances between the offsets of consecutive lines, encoded as variable
+ * length integers. So the sidecar file typically requires only one or two bytes per line. If the source code file has
+ * been changed after the index has been written, then the index will be created again.
+ * </p>
+ *
+ * <p>
+ * The lines are terminated by a line feed, a carriage return, or a carriage return followed by a line feed, see
+ * {@link java.io.BufferedReader#readLine()}. Since the index is computed on the bytes of the file, it can only be
+ * used for character sets that encode these terminators as the single bytes of US-ASCII, see
+ * {@link #isSupported(Charset)}.
+ * </p>
+ */
+public final class LineIndex {
+    /** The suffix of the sidecar file that stores the index of a source code file. */
+    static final String SUFFIX = ".lines";
+
+    private static final int MAGIC = 0x50524c49;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte[] TERMINATORS = {'\r', '\n'};
+
+    /**
+     * Returns whether a line index can be used for files that are encoded with the specified character set.
+     *
+     * @param charset
+     *         the character set of the source code file
+     *
+     * @return {@code true} if the line terminators are encoded as the single bytes of US-ASCII, {@code false}
+     *         otherwise
+     */
+    public static boolean isSupported(final Charset charset) {
+        return charset.canEncode() && Arrays.equals(TERMINATORS, "\r\n".getBytes(charset));
+    }
+
+    /**
+     * Creates the index of the specified source code file and stores it in the sidecar file. Plugins that store
+     * source code files in the build folder should invoke this method after a file has been stored, so that the index
+     * does not need to be created when the file is viewed for the first time.
+     *
+     * @param file
+     *         the source code file
+     *
+     * @return the created index
+     * @throws IOException
+     *         if the source code file could not be read or the sidecar file could not be written
+     */
+    public static LineIndex store(final Path file) throws IOException {
+        LineIndex index = create(file);
+        index.write(getIndexFile(file));
+        return index;
+    }
+
+    /**
+     * Returns the index of the specified source code file. If the sidecar file contains an up-to-date index, then this
+     * index is returned. Otherwise, the index is created and stored in the sidecar file. If the sidecar file cannot be
+     * written (e.g., since the folder is read-only), then the created index is returned anyway.
+     *
+     * @param file
+     *         the source code file
+     *
+     * @return the index
+     * @throws IOException
+     *         if the source code file could not be read
+     */
+    static LineIndex load(final Path file) throws IOException {
+        Optional<LineIndex> stored = read(file);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        LineIndex index = create(file);
+        try {
+            index.write(getIndexFile(file));
+        }
+        catch (IOException ignored) {
+            // the index will be created again for the next view
+        }
+        return index;
+    }
+
+    /**
+     * Returns the sidecar file that stores the index of the specified source code file.
+     *
+     * @param file
+     *         the source code file
+     *
+     * @return the sidecar file
+     */
+    static Path getIndexFile(final Path file) {
+        return file.resolveSibling(file.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Creates the index of the specified source code file. The file is read in a single pass.
+     *
+     * @param file
+     *         the source code file
+     *
+     * @return the index
+     * @throws IOException
+     *         if the file could not be read
+     */
+    static LineIndex create(final Path file) throws IOException {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        long[] offsets = new long[INITIAL_CAPACITY];
+        int count = 0;
+        long position = 0;
+        boolean isLineStart = true;
+        boolean isCarriageReturn = false;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read = input.read(buffer);
+            while (read != -1) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte character = buffer[i];
+                    if (isCarriageReturn) {
+                        isCarriageReturn = false;
+                        if (character == '\n') {
+                            continue; // the line feed belongs to the terminator of the previous line
+                        }
+                    }
+                    if (isLineStart) {
+                        if (count == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, 2 * count);
+                        }
+                        offsets[count++] = position;
+                        isLineStart = false;
+                    }
+                    if (character == '\n' || character == '\r') {
+                        isLineStart = true;
+                        isCarriageReturn = character == '\r';
+                    }
+                }
+                read = input.read(buffer);
+            }
+        }
+        return new LineIndex(position, lastModified, Arrays.copyOf(offsets, count));
+    }
+
+    /**
+     * Reads the index of the specified source code file from the sidecar file.
+     *
+     * @param file
+     *         the source code file
+     *
+     * @return the index, or an empty result if there is no sidecar file, or if the source code file has been changed
+     *         after the sidecar file has been written
+     */
+    static Optional<LineIndex> read(final Path file) {
+        Path indexFile = getIndexFile(file);
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexFile), BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return Optional.empty();
+            }
+            long size = input.readLong();
+            long lastModified = input.readLong();
+            if (size != Files.size(file) || lastModified != Files.getLastModifiedTime(file).toMillis()) {
+                return Optional.empty();
+            }
+            int count = input.readInt();
+            if (count < 0 || count > size) {
+                return Optional.empty();
+            }
+            long[] offsets = new long[count];
+            long offset = 0;
+            for (int line = 0; line < count; line++) {
+                offset += readVariableLength(input);
+                offsets[line] = offset;
+            }
+            return Optional.of(new LineIndex(size, lastModified, offsets));
+        }
+        catch (IOException exception) {
+            return Optional.empty(); // corrupt or truncated sidecar file
+        }
+    }
+
+    private static long readVariableLength(final DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int part = input.readUnsignedByte();
+            value |= (long) (part & 0x7F) << shift;
+            if ((part & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Invalid variable length integer");
+    }
+
+    private static void writeVariableLength(final DataOutputStream output, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            output.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte((int) remaining);
+    }
+
+    private final long size;
+    private final long lastModified;
+    private final long[] offsets;
+
+    private LineIndex(final long size, final long lastModified, final long[] offsets) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Writes this index to the specified sidecar file. The index is written to a temporary file first that replaces
+     * the sidecar file afterward, so concurrent readers never see a partially written index.
+     *
+     * @param indexFile
+     *         the sidecar file
+     *
+     * @throws IOException
+     *         if the sidecar file could not be written
+     */
+    void write(final Path indexFile) throws IOException {
+        Path temporary = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(size);
+                output.writeLong(lastModified);
+                output.writeInt(offsets.length);
+                long previous = 0;
+                for (long offset : offsets) {
+                    writeVariableLength(output, offset - previous);
+                    previous = offset;
+                }
+            }
+            try {
+                Files.move(temporary, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Returns the number of lines of the source code file.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Returns the size of the source code file in bytes.
+     *
+     * @return the size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the byte offset of the specified line. The offset of the line after the last line is the size of the
+     * file.
+     *
+     * @param lineNumber
+     *         the line number (lines start at 1), must not be greater than the number of lines plus one
+     *
+     * @return the byte offset of the first character of the line
+     * @throws IndexOutOfBoundsException
+     *         if the line number is out of range
+     */
+    public long getOffset(final int lineNumber) {
+        if (lineNumber < 1 || lineNumber > offsets.length + 1) {
+            throw new IndexOutOfBoundsException("Line " + lineNumber + " is out of range [1, "
+                    + (offsets.length + 1) + "]");
+        }
+        if (lineNumber == offsets.length + 1) {
+            return size;
+        }
+        return offsets[lineNumber - 1];
+    }
+}
@@ -0,0 +1,76 @@
+package io.jenkins.plugins.prism;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A block of consecutive lines in a source code file that is covered by one or more {@link Marker markers}. Markers
+ * with overlapping or nested line ranges are combined into the same region, so that each line of the file belongs to
+ * at most one region.
+ */
+class MarkedRegion {
+    private static final Comparator<Marker> BY_LINE = Comparator.comparingInt(Marker::getLineStart)
+            .thenComparing(Marker::getLineEnd, Comparator.reverseOrder());
+
+    /**
+     * Sorts the specified markers by their line ranges and combines overlapping and nested markers into regions. The
+     * returned regions are disjoint and sorted by their first line.
+     *
+     * @param markers
+     *         the markers to combine
+     *
+     * @return the sorted list of regions
+     */
+    static List<MarkedRegion> of(final Collection<Marker> markers) {
+        List<Marker> sorted = new ArrayList<>(markers);
+        sorted.sort(BY_LINE);
+
+        List<MarkedRegion> regions = new ArrayList<>();
+        MarkedRegion current = null;
+        for (Marker marker : sorted) {
+            if (current != null && marker.getLineStart() <= current.lineEnd) {
+                current.add(marker);
+            }
+            else {
+                current = new MarkedRegion(marker);
+                regions.add(current);
+            }
+        }
+        return regions;
+    }
+
+    private final int lineStart;
+    private int lineEnd;
+    private final List<Marker> markers = new ArrayList<>();
+
+    private MarkedRegion(final Marker marker) {
+        lineStart = marker.getLineStart();
+        lineEnd = marker.getLineEnd();
+        markers.add(marker);
+    }
+
+    private void add(final Marker marker) {
+        lineEnd = Math.max(lineEnd, marker.getLineEnd());
+        markers.add(marker);
+    }
+
+    int getLineStart() {
+        return lineStart;
+    }
+
+    int getLineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * Returns the markers of this region, sorted by their first line.
+     *
+     * @return the markers
+     */
+    List<Marker> getMarkers() {
+        return Collections.unmodifiableList(markers);
+    }
+}
@@ -1,5 +1,7 @@
 package io.jenkins.plugins.prism;
 
+import java.util.Objects;
+
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -58,6 +60,29 @@ public class Marker {
         return columnEnd;
     }
 
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Marker marker = (Marker) o;
+        return lineStart == marker.lineStart
+                && lineEnd == marker.lineEnd
+                && columnStart == marker.columnStart
+                && columnEnd == marker.columnEnd
+                && Objects.equals(title, marker.title)
+                && Objects.equals(icon, marker.icon)
+                && Objects.equals(description, marker.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(title, icon, description, lineStart, lineEnd, columnStart, columnEnd);
+    }
+
     /**
      * Creates {@link Marker markers} using the builder pattern.
      *
@@ -139,7 +164,8 @@ public class Marker {
         }
 
         /**
-         * Defines the first column of this marker (columns start at 1, 0 indicates the whole line).
+         * Defines the first column of this marker (columns start at 1, 0 indicates the whole line). If the marker
+         * spans several lines, then this column refers to the first line.
          *
          * @param columnStart
          *         the first column
@@ -152,7 +178,8 @@ public class Marker {
         }
 
         /**
-         * Defines the last column of this marker (columns start at 1).
+         * Defines the last column of this marker (columns start at 1). If the marker spans several lines, then this
+         * column refers to the last line.
          *
          * @param columnEnd
          *         the last column
@@ -187,10 +214,14 @@ public class Marker {
                 this.columnStart = providedColumnEnd;
                 this.columnEnd = providedColumnEnd;
             }
-            else {
+            else if (lineStart == lineEnd) {
                 this.columnStart = Math.min(providedColumnStart, providedColumnEnd);
                 this.columnEnd = Math.max(providedColumnStart, providedColumnEnd);
             }
+            else { // the columns of multi-line markers refer to different lines
+                this.columnStart = providedColumnStart;
+                this.columnEnd = providedColumnEnd;
+            }
 
             return new Marker(title, icon, description, lineStart, lineEnd, columnStart, columnEnd);
         }
@@ -0,0 +1,191 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * A {@link Sanitizer} that memoizes the sanitized HTML. Static analysis tools typically use the same (long) description
+ * for thousands of issues: this sanitizer runs the markup formatter only once for each distinct HTML snippet. The
+ * results are stored in a bounded cache, using the SHA-256 hash of the HTML snippet as key. The cache is bounded by
+ * the number of snippets and by the total number of characters of the sanitized snippets: if one of these bounds is
+ * exceeded, then the least recently used results will be evicted. Snippets that are larger than a quarter of the
+ * maximum size are not cached at all, so a single huge description cannot evict all other results.
+ *
+ * <p>
+ * This sanitizer can be used concurrently by several threads. The markup formatter is invoked outside the lock of the
+ * cache, so several requests for different snippets do not block each other.
+ * </p>
+ */
+public class MemoizingSanitizer extends Sanitizer {
+    /** The default number of sanitized snippets that will be cached. */
+    public static final int DEFAULT_CAPACITY = 1000;
+    /** The default maximum number of characters of all cached snippets. */
+    public static final long DEFAULT_MAXIMUM_SIZE = 4L * 1024 * 1024;
+
+    /** Snippets that exceed this fraction of the maximum size are not cached. */
+    private static final int MAXIMUM_ENTRY_FRACTION = 4;
+
+    private final Map<String, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final int capacity;
+    private final long maximumSize;
+    private long size;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a new sanitizer that caches up to {@link #DEFAULT_CAPACITY} sanitized snippets with up to
+     * {@link #DEFAULT_MAXIMUM_SIZE} characters.
+     */
+    public MemoizingSanitizer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new sanitizer that caches up to the specified number of sanitized snippets with up to
+     * {@link #DEFAULT_MAXIMUM_SIZE} characters.
+     *
+     * @param capacity
+     *         the maximum number of cached snippets
+     */
+    public MemoizingSanitizer(final int capacity) {
+        this(capacity, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a new sanitizer that caches up to the specified number of sanitized snippets with up to the specified
+     * number of characters.
+     *
+     * @param capacity
+     *         the maximum number of cached snippets
+     * @param maximumSize
+     *         the maximum number of characters of all cached snippets
+     */
+    public MemoizingSanitizer(final int capacity, final long maximumSize) {
+        super();
+
+        this.capacity = capacity;
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    String translate(final String html) throws IOException {
+        String key = createKey(html);
+        String sanitized = get(key);
+        if (sanitized != null) {
+            hitCount.incrementAndGet();
+            return sanitized;
+        }
+
+        missCount.incrementAndGet();
+        sanitized = super.translate(html);
+        if (sanitized != null) {
+            put(key, sanitized);
+        }
+        return sanitized;
+    }
+
+    @CheckForNull
+    private String get(final String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private void put(final String key, final String sanitized) {
+        if (sanitized.length() > maximumSize / MAXIMUM_ENTRY_FRACTION) {
+            return;
+        }
+        synchronized (cache) {
+            String previous = cache.put(key, sanitized);
+            if (previous != null) { // another thread sanitized the same snippet concurrently
+                size -= previous.length();
+            }
+            size += sanitized.length();
+
+            Iterator<Map.Entry<String, String>> eldest = cache.entrySet().iterator();
+            while ((cache.size() > capacity || size > maximumSize) && eldest.hasNext()) {
+                size -= eldest.next().getValue().length();
+                eldest.remove();
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private String createKey(final String html) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return new String(digest.digest(html.getBytes(StandardCharsets.UTF_8)), StandardCharsets.ISO_8859_1);
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    /**
+     * Returns the number of cached snippets.
+     *
+     * @return the number of cached snippets
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns the total number of characters of the cached snippets.
+     *
+     * @return the number of cached characters
+     */
+    public long getSize() {
+        synchronized (cache) {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the number of snippets that have been served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of snippets that have been sanitized by the markup formatter.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of snippets that have been evicted from the cache.
+     *
+     * @return the number of evicted snippets
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Removes all snippets from the cache.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            size = 0;
+        }
+    }
+}
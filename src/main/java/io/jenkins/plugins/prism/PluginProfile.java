@@ -0,0 +1,41 @@
+package io.jenkins.plugins.prism;
+
+/**
+ * Defines the Prism plugins that will be applied to the code blocks of the source code view. The costs of the plugins
+ * grow with the number of lines and tokens of a file, so large files are shown with a leaner profile. The profile is
+ * selected by {@link PrismAppearanceConfiguration#selectPluginProfile(long, long)}.
+ */
+public enum PluginProfile {
+    /** Shows line numbers and highlights matching braces. */
+    FULL(true, true),
+    /** Shows line numbers, but does not highlight matching braces. */
+    LEAN(true, false),
+    /** Neither shows line numbers nor highlights matching braces. */
+    MINIMAL(false, false);
+
+    private final boolean lineNumbers;
+    private final boolean matchBraces;
+
+    PluginProfile(final boolean lineNumbers, final boolean matchBraces) {
+        this.lineNumbers = lineNumbers;
+        this.matchBraces = matchBraces;
+    }
+
+    /**
+     * Returns whether the Prism plugin line-numbers will be applied.
+     *
+     * @return {@code true} if line numbers are shown, {@code false} otherwise
+     */
+    public boolean isLineNumbers() {
+        return lineNumbers;
+    }
+
+    /**
+     * Returns whether the Prism plugin match-braces will be applied.
+     *
+     * @return {@code true} if matching braces are highlighted, {@code false} otherwise
+     */
+    public boolean isMatchBraces() {
+        return matchBraces;
+    }
+}
@@ -1,5 +1,7 @@
 package io.jenkins.plugins.prism;
 
+import java.util.List;
+
 import edu.hm.hafner.util.VisibleForTesting;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
@@ -12,6 +14,7 @@ import jenkins.appearance.AppearanceCategory;
 import jenkins.model.GlobalConfigurationCategory;
 import jenkins.model.Jenkins;
 
+import io.jenkins.plugins.prism.HighlightingTimeouts.HighlightingTimeout;
 import io.jenkins.plugins.util.GlobalConfigurationFacade;
 import io.jenkins.plugins.util.GlobalConfigurationItem;
 import io.jenkins.plugins.util.JenkinsFacade;
@@ -29,6 +32,46 @@ import io.jenkins.plugins.util.JenkinsFacade;
  *      <b>Theme</b>: Prism supports several themes that can be used to adapt the look and feel. You can configure the
  *      default theme used for all Jenkins jobs.
  *     </li>
+ *     <li>
+ *      <b>Context lines</b>: the number of lines that will be shown before and after the marker in the source code
+ *      view. Additional lines can be loaded on demand. If this value is 0, then the whole file will be shown.
+ *     </li>
+ *     <li>
+ *      <b>Server side highlighting</b>: tokenizes the source code on the server rather than in the browser. This
+ *      considerably reduces the rendering time of large files in the browser.
+ *     </li>
+ *     <li>
+ *      <b>Server side line numbers</b>: renders the line numbers and anchors for each line on the server rather than
+ *      using the Prism line-numbers plugin. Then the browser does not need to measure the lines, and deep links to a
+ *      line (e.g., {@code #L42}) work without scripts.
+ *     </li>
+ *     <li>
+ *      <b>Compact output</b>: writes the source code view using minimal markup: the language and plugin classes are
+ *      written only once rather than for each code block.
+ *     </li>
+ *     <li>
+ *      <b>Single code block</b>: renders the whole source code as a single code block so that it is tokenized only
+ *      once. The marked lines are highlighted by the Prism line-highlight plugin, the details are shown as overlays.
+ *     </li>
+ *     <li>
+ *      <b>Virtual scrolling</b>: shows the source code in a viewer that keeps only the visible lines in the DOM and
+ *      fetches the other lines from the server while scrolling. This keeps the memory usage of the browser low even
+ *      for files with hundreds of thousands of lines.
+ *     </li>
+ *     <li>
+ *      <b>Plugin profile thresholds</b>: files with more lines or characters than the lean thresholds are shown
+ *      without highlighting matching braces, files with more lines than the minimal threshold are shown without line
+ *      numbers as well. Files that are larger than {@link SourceCodeViewModel#MAX_CACHED_SOURCE_LENGTH} characters
+ *      always use the minimal profile. A threshold of 0 disables the corresponding check.
+ *     </li>
+ *     <li>
+ *      <b>Highlighting timeout</b>: the time budget (in seconds) of Prism to highlight a source code file in the
+ *      browser. If Prism does not finish in time, then the source code is shown without highlighting and the timeout
+ *      is recorded in the {@link HighlightingTimeouts}. If this value is 0, then the highlighting is not aborted.
+ *     </li>
+ *     <li>
+ *      <b>Render cache size</b>: the maximum size (in MB) of the cache that stores the rendered source code files.
+ *     </li>
  * </ul>
  *
  * @author Ullrich Hafner
@@ -36,7 +79,26 @@ import io.jenkins.plugins.util.JenkinsFacade;
 @Extension
 @Symbol("prism")
 public class PrismAppearanceConfiguration extends GlobalConfigurationItem {
+    static final int DEFAULT_RENDER_CACHE_SIZE = 32;
+    static final int DEFAULT_LEAN_PROFILE_LINES = 2000;
+    static final int DEFAULT_LEAN_PROFILE_SIZE = 256;
+    static final int DEFAULT_MINIMAL_PROFILE_LINES = 20_000;
+    static final int DEFAULT_HIGHLIGHTING_TIMEOUT = 5;
+    private static final int KILO_BYTE = 1024;
+    private static final long MEGA_BYTE = 1024L * KILO_BYTE;
+
     private PrismTheme theme = PrismTheme.PRISM;
+    private int contextLines;
+    private boolean serverSideHighlighting;
+    private boolean serverSideLineNumbers;
+    private boolean compactOutput;
+    private boolean singleCodeBlock;
+    private boolean virtualScrolling;
+    private int leanProfileLines = DEFAULT_LEAN_PROFILE_LINES;
+    private int leanProfileSize = DEFAULT_LEAN_PROFILE_SIZE;
+    private int minimalProfileLines = DEFAULT_MINIMAL_PROFILE_LINES;
+    private int highlightingTimeout = DEFAULT_HIGHLIGHTING_TIMEOUT;
+    private int renderCacheSize = DEFAULT_RENDER_CACHE_SIZE;
     private final JenkinsFacade jenkins;
 
     /**
@@ -50,6 +112,7 @@ public class PrismAppearanceConfiguration extends GlobalConfigurationItem {
         jenkins =  new JenkinsFacade();
 
         load();
+        applyRenderCacheSize();
     }
 
     @VisibleForTesting
@@ -60,6 +123,7 @@ public class PrismAppearanceConfiguration extends GlobalConfigurationItem {
         this.jenkins = jenkins;
 
         load();
+        applyRenderCacheSize();
     }
 
     @NonNull
@@ -94,6 +158,248 @@ public class PrismAppearanceConfiguration extends GlobalConfigurationItem {
         return theme;
     }
 
+    /**
+     * Sets the number of lines that will be shown before and after the marker in the source code view. If this value
+     * is 0, then the whole file will be shown.
+     *
+     * @param contextLines
+     *         the number of context lines
+     */
+    @DataBoundSetter
+    public void setContextLines(final int contextLines) {
+        this.contextLines = Math.max(contextLines, 0);
+
+        save();
+    }
+
+    public int getContextLines() {
+        return contextLines;
+    }
+
+    /**
+     * Enables or disables the syntax highlighting on the server. If enabled, then the source code is tokenized while
+     * it is rendered on the server. Otherwise, Prism.js tokenizes the source code in the browser.
+     *
+     * @param serverSideHighlighting
+     *         {@code true} if the source code should be tokenized on the server
+     */
+    @DataBoundSetter
+    public void setServerSideHighlighting(final boolean serverSideHighlighting) {
+        this.serverSideHighlighting = serverSideHighlighting;
+
+        save();
+    }
+
+    public boolean isServerSideHighlighting() {
+        return serverSideHighlighting;
+    }
+
+    /**
+     * Enables or disables the rendering of the source code as a single code block. If enabled, then the source code
+     * is tokenized only once, the marked lines are highlighted using the Prism line-highlight plugin, and the details
+     * of the markers are shown as overlays.
+     *
+     * @param singleCodeBlock
+     *         {@code true} if the source code should be rendered as a single code block
+     */
+    @DataBoundSetter
+    public void setSingleCodeBlock(final boolean singleCodeBlock) {
+        this.singleCodeBlock = singleCodeBlock;
+
+        save();
+    }
+
+    public boolean isSingleCodeBlock() {
+        return singleCodeBlock;
+    }
+
+    /**
+     * Enables or disables the line numbers that are rendered on the server. If enabled, then each line starts with
+     * an anchor that shows the line number, the Prism line-numbers plugin is not used anymore.
+     *
+     * @param serverSideLineNumbers
+     *         {@code true} if the line numbers should be rendered on the server
+     */
+    @DataBoundSetter
+    public void setServerSideLineNumbers(final boolean serverSideLineNumbers) {
+        this.serverSideLineNumbers = serverSideLineNumbers;
+
+        save();
+    }
+
+    public boolean isServerSideLineNumbers() {
+        return serverSideLineNumbers;
+    }
+
+    /**
+     * Enables or disables the compact output of the source code view. If enabled, then the language and plugin classes
+     * are written only once for the {@code pre} element rather than for each code block.
+     *
+     * @param compactOutput
+     *         {@code true} if the source code view should be written using minimal markup
+     */
+    @DataBoundSetter
+    public void setCompactOutput(final boolean compactOutput) {
+        this.compactOutput = compactOutput;
+
+        save();
+    }
+
+    public boolean isCompactOutput() {
+        return compactOutput;
+    }
+
+    /**
+     * Enables or disables the virtual scrolling viewer. If enabled, then only a window of lines around the marker is
+     * rendered, the viewer fetches the visible lines from the server while scrolling and keeps only these lines in
+     * the DOM.
+     *
+     * @param virtualScrolling
+     *         {@code true} if the source code should be shown in the virtual scrolling viewer
+     */
+    @DataBoundSetter
+    public void setVirtualScrolling(final boolean virtualScrolling) {
+        this.virtualScrolling = virtualScrolling;
+
+        save();
+    }
+
+    public boolean isVirtualScrolling() {
+        return virtualScrolling;
+    }
+
+    /**
+     * Sets the number of lines of a file that activates the lean plugin profile. If this value is 0, then the number
+     * of lines does not select the lean profile.
+     *
+     * @param leanProfileLines
+     *         the number of lines
+     */
+    @DataBoundSetter
+    public void setLeanProfileLines(final int leanProfileLines) {
+        this.leanProfileLines = Math.max(leanProfileLines, 0);
+
+        save();
+    }
+
+    public int getLeanProfileLines() {
+        return leanProfileLines;
+    }
+
+    /**
+     * Sets the size of a file (in KB) that activates the lean plugin profile. If this value is 0, then the size does
+     * not select the lean profile.
+     *
+     * @param leanProfileSize
+     *         the size in KB
+     */
+    @DataBoundSetter
+    public void setLeanProfileSize(final int leanProfileSize) {
+        this.leanProfileSize = Math.max(leanProfileSize, 0);
+
+        save();
+    }
+
+    public int getLeanProfileSize() {
+        return leanProfileSize;
+    }
+
+    /**
+     * Sets the number of lines of a file that activates the minimal plugin profile. If this value is 0, then the
+     * number of lines does not select the minimal profile.
+     *
+     * @param minimalProfileLines
+     *         the number of lines
+     */
+    @DataBoundSetter
+    public void setMinimalProfileLines(final int minimalProfileLines) {
+        this.minimalProfileLines = Math.max(minimalProfileLines, 0);
+
+        save();
+    }
+
+    public int getMinimalProfileLines() {
+        return minimalProfileLines;
+    }
+
+    /**
+     * Selects the Prism plugins that will be applied to a file with the specified size and number of lines.
+     *
+     * @param size
+     *         the number of characters of the file
+     * @param lines
+     *         the number of lines of the file
+     *
+     * @return the plugin profile
+     */
+    public PluginProfile selectPluginProfile(final long size, final long lines) {
+        if (exceeds(lines, minimalProfileLines)) {
+            return PluginProfile.MINIMAL;
+        }
+        if (exceeds(lines, leanProfileLines) || exceeds(size, (long) leanProfileSize * KILO_BYTE)) {
+            return PluginProfile.LEAN;
+        }
+        return PluginProfile.FULL;
+    }
+
+    private boolean exceeds(final long value, final long threshold) {
+        return threshold > 0 && value > threshold;
+    }
+
+    /**
+     * Sets the time budget of Prism to highlight a source code file in the browser. If this value is 0, then the
+     * highlighting is not aborted.
+     *
+     * @param highlightingTimeout
+     *         the time budget in seconds
+     */
+    @DataBoundSetter
+    public void setHighlightingTimeout(final int highlightingTimeout) {
+        this.highlightingTimeout = Math.max(highlightingTimeout, 0);
+
+        save();
+    }
+
+    public int getHighlightingTimeout() {
+        return highlightingTimeout;
+    }
+
+    /**
+     * Returns the source code files whose highlighting has been aborted in the browser.
+     *
+     * @return the recorded timeouts, sorted by the number of timeouts
+     */
+    public List<HighlightingTimeout> getHighlightingTimeouts() {
+        return HighlightingTimeouts.getInstance().getTimeouts();
+    }
+
+    /**
+     * Sets the maximum size of the cache that stores the rendered source code files. If this value is 0, then the
+     * rendered source code files are not cached.
+     *
+     * @param renderCacheSize
+     *         the maximum size of the cache in MB
+     */
+    @DataBoundSetter
+    public void setRenderCacheSize(final int renderCacheSize) {
+        this.renderCacheSize = Math.max(renderCacheSize, 0);
+        applyRenderCacheSize();
+
+        save();
+    }
+
+    public int getRenderCacheSize() {
+        return renderCacheSize;
+    }
+
+    /**
+     * Applies the configured size to the shared {@link RenderCache}. The size is applied only when the configuration
+     * is loaded or changed, so rendering a source code file does not modify the cache size.
+     */
+    private void applyRenderCacheSize() {
+        RenderCache.getInstance().setMaximumSize(renderCacheSize * MEGA_BYTE);
+    }
+
     /**
      * Returns all available themes.
      *
@@ -0,0 +1,205 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+
+import edu.hm.hafner.util.VisibleForTesting;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.UnprotectedRootAction;
+
+/**
+ * Serves the combined Prism bundles that are created at build time by the script {@code bin/build-prism-bundle.js}.
+ * For each {@link PluginProfile} there is a script bundle that contains the Prism core and the Prism plugins of the
+ * profile, and a stylesheet bundle that contains the styles of these plugins. The file names of the bundles contain
+ * a hash of their content, so the bundles are served with far-future immutable cache headers. If the browser accepts
+ * it, the precompressed brotli or gzip variant of a bundle is served.
+ */
+@Extension
+public class PrismBundle implements UnprotectedRootAction {
+    static final String URL_NAME = "prism-bundle";
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final String BUNDLE_RESOURCE = "bundle/";
+    private static final String MANIFEST = "bundle.properties";
+    private static final String BROTLI = "br";
+    private static final String GZIP = "gzip";
+
+    /**
+     * Returns the singleton instance of this action.
+     *
+     * @return the singleton instance
+     */
+    public static PrismBundle get() {
+        return ExtensionList.lookupSingleton(PrismBundle.class);
+    }
+
+    private final String resourcePath;
+    private final Map<PluginProfile, String> scripts = new EnumMap<>(PluginProfile.class);
+    private final Map<PluginProfile, String> stylesheets = new EnumMap<>(PluginProfile.class);
+
+    /**
+     * Creates a new instance of {@link PrismBundle} that serves the bundles created during the build.
+     */
+    public PrismBundle() {
+        this(BUNDLE_RESOURCE);
+    }
+
+    @VisibleForTesting
+    PrismBundle(final String resourcePath) {
+        this.resourcePath = resourcePath;
+
+        Properties manifest = new Properties();
+        try (InputStream stream = PrismBundle.class.getResourceAsStream(resourcePath + MANIFEST)) {
+            if (stream != null) {
+                manifest.load(stream);
+            }
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        for (PluginProfile profile : PluginProfile.values()) {
+            scripts.put(profile, manifest.getProperty(profile.name() + ".script", StringUtils.EMPTY));
+            stylesheets.put(profile, manifest.getProperty(profile.name() + ".stylesheet", StringUtils.EMPTY));
+        }
+    }
+
+    @CheckForNull
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @CheckForNull
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Returns whether the bundles have been created during the build. If not, the individual Prism scripts and
+     * stylesheets need to be loaded.
+     *
+     * @return {@code true} if the bundles are available, {@code false} otherwise
+     */
+    public boolean isAvailable() {
+        return scripts.values().stream().noneMatch(String::isEmpty)
+                && stylesheets.values().stream().noneMatch(String::isEmpty);
+    }
+
+    /**
+     * Returns the URL of the script bundle for the specified profile, relative to the root URL of Jenkins.
+     *
+     * @param profile
+     *         the profile of the source code view, {@code null} selects the profile {@link PluginProfile#FULL}
+     *
+     * @return the URL of the script bundle
+     */
+    public String getScriptUrl(@CheckForNull final PluginProfile profile) {
+        return URL_NAME + "/" + scripts.get(getProfile(profile));
+    }
+
+    /**
+     * Returns the URL of the stylesheet bundle for the specified profile, relative to the root URL of Jenkins.
+     *
+     * @param profile
+     *         the profile of the source code view, {@code null} selects the profile {@link PluginProfile#FULL}
+     *
+     * @return the URL of the stylesheet bundle
+     */
+    public String getStylesheetUrl(@CheckForNull final PluginProfile profile) {
+        return URL_NAME + "/" + stylesheets.get(getProfile(profile));
+    }
+
+    private PluginProfile getProfile(@CheckForNull final PluginProfile profile) {
+        return profile == null ? PluginProfile.FULL : profile;
+    }
+
+    /**
+     * Serves the bundle with the name given by the rest of the path. Only the bundles of the current build can be
+     * requested.
+     *
+     * @param request
+     *         Stapler request
+     * @param response
+     *         Stapler response
+     *
+     * @throws IOException
+     *         if the bundle could not be written
+     */
+    public void doDynamic(final StaplerRequest2 request, final StaplerResponse2 response) throws IOException {
+        String name = StringUtils.removeStart(request.getRestOfPath(), "/");
+        boolean isScript = scripts.containsValue(name);
+        if (!isAvailable() || !(isScript || stylesheets.containsValue(name))) {
+            response.sendError(StaplerResponse2.SC_NOT_FOUND);
+            return;
+        }
+
+        String encoding = selectEncoding(request.getHeader("Accept-Encoding"));
+        URL resource = getResource(name, encoding);
+        if (resource == null) {
+            encoding = StringUtils.EMPTY;
+            resource = getResource(name, encoding);
+        }
+        if (resource == null) {
+            response.sendError(StaplerResponse2.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType(isScript
+                ? "application/javascript;charset=UTF-8" : "text/css;charset=UTF-8");
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        response.setHeader("Vary", "Accept-Encoding");
+        if (StringUtils.isNotEmpty(encoding)) {
+            response.setHeader("Content-Encoding", encoding);
+        }
+        try (InputStream input = resource.openStream(); OutputStream output = response.getOutputStream()) {
+            input.transferTo(output);
+        }
+    }
+
+    private String selectEncoding(@CheckForNull final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return StringUtils.EMPTY;
+        }
+        if (acceptEncoding.contains(BROTLI)) {
+            return BROTLI;
+        }
+        if (acceptEncoding.contains(GZIP)) {
+            return GZIP;
+        }
+        return StringUtils.EMPTY;
+    }
+
+    @CheckForNull
+    private URL getResource(final String name, final String encoding) {
+        String suffix;
+        if (BROTLI.equals(encoding)) {
+            suffix = ".br";
+        }
+        else if (GZIP.equals(encoding)) {
+            suffix = ".gz";
+        }
+        else {
+            suffix = StringUtils.EMPTY;
+        }
+        return PrismBundle.class.getResource(resourcePath + name + suffix);
+    }
+}
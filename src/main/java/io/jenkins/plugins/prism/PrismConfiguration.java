@@ -14,6 +14,7 @@ import java.util.stream.Collectors;
 import org.kohsuke.stapler.DataBoundSetter;
 import org.jenkinsci.Symbol;
 import hudson.Extension;
+import hudson.util.ListBoxModel;
 import jenkins.model.GlobalConfigurationCategory;
 
 import io.jenkins.plugins.util.GlobalConfigurationFacade;
@@ -36,6 +37,12 @@ import io.jenkins.plugins.util.GlobalConfigurationItem;
  *      that are allowed to be shown in Jenkins user interface here. Note, that such a directory must be an absolute path
  *      on the agent that executes the build.
  *     </li>
+ *     <li>
+ *      <b>Large file limits</b>: the maximum size (in MB), the maximum number of lines, and the maximum line length of
+ *      source code files that are rendered with syntax highlighting. Larger files are shown as plain text, as an
+ *      excerpt around the markers, or as a download link only, so that a single view cannot exhaust the memory of the
+ *      controller. A limit of 0 disables the corresponding check.
+ *     </li>
  * </ul>
  *
  * @author Ullrich Hafner
@@ -43,8 +50,17 @@ import io.jenkins.plugins.util.GlobalConfigurationItem;
 @Extension
 @Symbol("prism")
 public class PrismConfiguration extends GlobalConfigurationItem {
+    static final int DEFAULT_MAXIMUM_FILE_SIZE = 20;
+    static final int DEFAULT_MAXIMUM_LINES = 500_000;
+    static final int DEFAULT_MAXIMUM_LINE_LENGTH = 10_000;
+
     private static final PathUtil PATH_UTIL = new PathUtil();
 
+    private int maximumFileSize = DEFAULT_MAXIMUM_FILE_SIZE;
+    private int maximumLines = DEFAULT_MAXIMUM_LINES;
+    private int maximumLineLength = DEFAULT_MAXIMUM_LINE_LENGTH;
+    private LargeFileMode largeFileMode = LargeFileMode.EXCERPT;
+
     private List<PermittedSourceCodeDirectory> sourceDirectories = Collections.emptyList();
     private Set<String> normalizedSourceDirectories = Collections.emptySet();
 
@@ -120,6 +136,86 @@ public class PrismConfiguration extends GlobalConfigurationItem {
         save();
     }
 
+    /**
+     * Sets the maximum size (in MB) of source code files that are rendered with syntax highlighting. If this value is
+     * 0, then the size is not limited.
+     *
+     * @param maximumFileSize
+     *         the maximum size in MB
+     */
+    @DataBoundSetter
+    public void setMaximumFileSize(final int maximumFileSize) {
+        this.maximumFileSize = Math.max(maximumFileSize, 0);
+
+        save();
+    }
+
+    public int getMaximumFileSize() {
+        return maximumFileSize;
+    }
+
+    /**
+     * Sets the maximum number of lines of source code files that are rendered with syntax highlighting. If this value
+     * is 0, then the number of lines is not limited.
+     *
+     * @param maximumLines
+     *         the maximum number of lines
+     */
+    @DataBoundSetter
+    public void setMaximumLines(final int maximumLines) {
+        this.maximumLines = Math.max(maximumLines, 0);
+
+        save();
+    }
+
+    public int getMaximumLines() {
+        return maximumLines;
+    }
+
+    /**
+     * Sets the maximum number of characters of a line in source code files that are rendered with syntax
+     * highlighting. Longer lines are truncated. If this value is 0, then the line length is not limited.
+     *
+     * @param maximumLineLength
+     *         the maximum number of characters of a line
+     */
+    @DataBoundSetter
+    public void setMaximumLineLength(final int maximumLineLength) {
+        this.maximumLineLength = Math.max(maximumLineLength, 0);
+
+        save();
+    }
+
+    public int getMaximumLineLength() {
+        return maximumLineLength;
+    }
+
+    /**
+     * Sets the mode that defines how source code files are shown that exceed one of the limits.
+     *
+     * @param largeFileMode
+     *         the mode for large files
+     */
+    @DataBoundSetter
+    public void setLargeFileMode(final LargeFileMode largeFileMode) {
+        this.largeFileMode = largeFileMode;
+
+        save();
+    }
+
+    public LargeFileMode getLargeFileMode() {
+        return largeFileMode;
+    }
+
+    /**
+     * Returns all available modes for large files.
+     *
+     * @return a model with all available modes
+     */
+    public ListBoxModel doFillLargeFileModeItems() {
+        return LargeFileMode.fillItems();
+    }
+
     /**
      * For maintaining compatibility after the move to {@link PrismAppearanceConfiguration}.
      *
@@ -0,0 +1,65 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+
+import edu.hm.hafner.util.VisibleForTesting;
+
+/**
+ * Provides the Prism grammar components that are required to highlight a given language. The dependencies of each
+ * grammar (e.g., {@code markup-templating} for {@code php}) are resolved at build time by the script
+ * {@code bin/build-prism-grammars.js}, so the view can load all required grammars directly instead of discovering
+ * them with the Prism autoloader one after another.
+ */
+class PrismGrammars {
+    private static final String GRAMMARS_RESOURCE = "grammars.properties";
+    private static final PrismGrammars INSTANCE = new PrismGrammars(GRAMMARS_RESOURCE);
+
+    /**
+     * Returns the grammars that have been resolved at build time.
+     *
+     * @return the grammars
+     */
+    static PrismGrammars getInstance() {
+        return INSTANCE;
+    }
+
+    private final Properties grammars = new Properties();
+
+    @VisibleForTesting
+    PrismGrammars(final String resource) {
+        try (InputStream stream = PrismGrammars.class.getResourceAsStream(resource)) {
+            if (stream != null) {
+                grammars.load(stream);
+            }
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Returns the Prism grammar components that are required to highlight the specified language. The components are
+     * sorted so that each component is loaded after its dependencies.
+     *
+     * @param languageClass
+     *         the Prism language class, e.g. {@code language-java}
+     *
+     * @return the required components, or an empty list if the language is unknown (or the grammars have not been
+     *         resolved during the build)
+     */
+    List<String> getGrammars(final String languageClass) {
+        String components = grammars.getProperty(languageClass);
+        if (StringUtils.isBlank(components)) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(StringUtils.split(components, ','));
+    }
+}
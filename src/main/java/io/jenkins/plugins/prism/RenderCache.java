@@ -0,0 +1,339 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import edu.hm.hafner.util.VisibleForTesting;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * A bounded cache for rendered source code files. The rendered HTML is stored for a key that consists of the digest
+ * of the source code content, the markers, the language, the render options, and the locale (the HTML contains
+ * localized labels and tooltips). Since the HTML of a given key never
+ * changes, subsequent views of the same source code (e.g., when the link to an issue is shared by a team) do not need
+ * to render the file again.
+ *
+ * <p>
+ * The size of the cache is bounded by the number of bytes of the cached HTML. If the bound is exceeded, then the least
+ * recently used entries are evicted. Additionally, the entries are softly referenced: the garbage collector releases
+ * them if the memory of the controller becomes low.
+ * </p>
+ */
+class RenderCache {
+    /** The default size of the cache in bytes. */
+    static final long DEFAULT_MAXIMUM_SIZE = 32L * 1024 * 1024;
+
+    private static final RenderCache INSTANCE = new RenderCache(DEFAULT_MAXIMUM_SIZE);
+
+    /** Entries that exceed this fraction of the maximum size are not cached. */
+    private static final int MAXIMUM_ENTRY_FRACTION = 4;
+
+    /**
+     * Returns the cache that is shared by all source code views.
+     *
+     * @return the shared cache
+     */
+    static RenderCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<String> releasedEntries = new ReferenceQueue<>();
+
+    private long maximumSize;
+    private long size;
+    private long hitCount;
+    private long missCount;
+
+    @VisibleForTesting
+    RenderCache(final long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Writes the rendered HTML for the specified key to the specified writer. If the HTML is not cached yet, then it
+     * will be rendered by the specified renderer: the HTML is written to the writer while it is rendered and stored in
+     * the cache afterward.
+     *
+     * @param key
+     *         the key of the rendered HTML
+     * @param renderer
+     *         the renderer that creates the HTML if the key is not cached yet
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    void render(final Key key, final Renderer renderer, final Writer writer) throws IOException {
+        String html = get(key);
+        if (html != null) {
+            writer.write(html);
+            writer.flush();
+            return;
+        }
+
+        CapturingWriter capturingWriter = new CapturingWriter(writer, getMaximumEntrySize());
+        renderer.render(capturingWriter);
+        if (!capturingWriter.isOverflow()) {
+            put(key, capturingWriter.getCaptured());
+        }
+    }
+
+    @CheckForNull
+    private synchronized String get(final Key key) {
+        removeReleasedEntries();
+
+        Entry entry = entries.get(key);
+        String html = entry == null ? null : entry.get();
+        if (html == null) {
+            missCount++;
+        }
+        else {
+            hitCount++;
+        }
+        return html;
+    }
+
+    private synchronized void put(final Key key, final String html) {
+        long entrySize = sizeOf(html);
+        if (entrySize > getMaximumEntrySize()) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(key, html, entrySize, releasedEntries));
+        size += entrySize;
+        evict();
+    }
+
+    private void remove(final Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            size -= removed.size;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (size > maximumSize && leastRecentlyUsed.hasNext()) {
+            size -= leastRecentlyUsed.next().size;
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    private void removeReleasedEntries() {
+        for (Reference<? extends String> released = releasedEntries.poll(); released != null;
+                released = releasedEntries.poll()) {
+            Entry entry = (Entry) released;
+            if (entries.get(entry.key) == entry) {
+                remove(entry.key);
+            }
+        }
+    }
+
+    private long getMaximumEntrySize() {
+        return maximumSize / MAXIMUM_ENTRY_FRACTION;
+    }
+
+    private static long sizeOf(final CharSequence html) {
+        return 2L * html.length(); // Strings use up to 2 bytes per character
+    }
+
+    /**
+     * Sets the maximum size of the cache in bytes. If the cache is already bigger, then the least recently used
+     * entries will be evicted. A size of 0 disables the cache.
+     *
+     * @param maximumSize
+     *         the maximum size in bytes
+     */
+    synchronized void setMaximumSize(final long maximumSize) {
+        this.maximumSize = Math.max(maximumSize, 0);
+
+        evict();
+    }
+
+    synchronized long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of bytes that are currently used by the cached HTML.
+     *
+     * @return the size in bytes
+     */
+    synchronized long getSize() {
+        removeReleasedEntries();
+
+        return size;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of entries
+     */
+    synchronized int getEntryCount() {
+        removeReleasedEntries();
+
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of requests that have been served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of requests that needed to render the source code.
+     *
+     * @return the number of cache misses
+     */
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Renders the HTML of a cache entry.
+     */
+    @FunctionalInterface
+    interface Renderer {
+        /**
+         * Renders the HTML and writes it to the specified writer.
+         *
+         * @param writer
+         *         the writer to write the HTML to
+         *
+         * @throws IOException
+         *         if the HTML could not be written
+         */
+        void render(Writer writer) throws IOException;
+    }
+
+    /**
+     * The key of a rendered source code file: the rendered HTML depends on the content of the file, the markers, the
+     * language of the file, and the render options.
+     */
+    static final class Key {
+        private final String digest;
+        private final List<Marker> markers;
+        private final String language;
+        private final RenderOptions options;
+        private final Locale locale;
+
+        Key(final String digest, final List<Marker> markers, final String language, final RenderOptions options,
+                final Locale locale) {
+            this.digest = digest;
+            this.markers = List.copyOf(markers);
+            this.language = language;
+            this.options = options;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return digest.equals(key.digest)
+                    && markers.equals(key.markers)
+                    && language.equals(key.language)
+                    && options.equals(key.options)
+                    && locale.equals(key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(digest, markers, language, options, locale);
+        }
+    }
+
+    /**
+     * A cached HTML snippet that is released by the garbage collector if the memory becomes low.
+     */
+    private static final class Entry extends SoftReference<String> {
+        private final Key key;
+        private final long size;
+
+        Entry(final Key key, final String html, final long size, final ReferenceQueue<String> queue) {
+            super(html, queue);
+
+            this.key = key;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A writer that writes through to another writer and captures the written characters up to a given size.
+     */
+    private static final class CapturingWriter extends Writer {
+        private final Writer writer;
+        private final long maximumSize;
+        private final StringBuilder captured = new StringBuilder();
+        private boolean overflow;
+
+        CapturingWriter(final Writer writer, final long maximumSize) {
+            super();
+
+            this.writer = writer;
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        public void write(final char[] buffer, final int offset, final int length) throws IOException {
+            writer.write(buffer, offset, length);
+            if (!overflow) {
+                if (sizeOf(captured) + 2L * length > maximumSize) {
+                    overflow = true;
+                    captured.setLength(0);
+                    captured.trimToSize();
+                }
+                else {
+                    captured.append(buffer, offset, length);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        boolean isOverflow() {
+            return overflow;
+        }
+
+        String getCaptured() {
+            return captured.toString();
+        }
+    }
+}
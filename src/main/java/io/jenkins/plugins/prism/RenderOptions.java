@@ -0,0 +1,301 @@
+package io.jenkins.plugins.prism;
+
+import java.util.Objects;
+
+/**
+ * Options that control how a source code file is rendered by the {@link SourcePrinter}.
+ */
+@SuppressWarnings("PMD.DataClass")
+class RenderOptions {
+    /** Renders the whole file using the default settings. */
+    static final RenderOptions DEFAULT = new RenderOptionsBuilder().build();
+    /** The number of lines before and after the marker that will be rendered for virtual scrolling by default. */
+    static final int VIRTUAL_CONTEXT_LINES = 100;
+
+    private final int contextLines;
+    private final boolean serverSideHighlighting;
+    private final boolean singleCodeBlock;
+    private final boolean virtualScrolling;
+    private final boolean serverSideLineNumbers;
+    private final boolean compactOutput;
+    private final PluginProfile pluginProfile;
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    RenderOptions(final int contextLines, final boolean serverSideHighlighting, final boolean singleCodeBlock,
+            final boolean virtualScrolling, final boolean serverSideLineNumbers, final boolean compactOutput,
+            final PluginProfile pluginProfile) {
+        this.contextLines = contextLines;
+        this.serverSideHighlighting = serverSideHighlighting;
+        this.singleCodeBlock = singleCodeBlock;
+        this.virtualScrolling = virtualScrolling;
+        this.serverSideLineNumbers = serverSideLineNumbers;
+        this.compactOutput = compactOutput;
+        this.pluginProfile = pluginProfile;
+    }
+
+    /**
+     * Returns the number of lines that will be rendered before and after the marker. If this value is not positive,
+     * then the whole file will be rendered.
+     *
+     * @return the number of context lines
+     */
+    int getContextLines() {
+        return contextLines;
+    }
+
+    /**
+     * Returns whether only a window of lines around the marker will be rendered.
+     *
+     * @return {@code true} if only a window of lines will be rendered, {@code false} if the whole file will be
+     *         rendered
+     */
+    boolean isWindowed() {
+        return contextLines > 0 || virtualScrolling;
+    }
+
+    private int getWindowContextLines() {
+        if (contextLines > 0) {
+            return contextLines;
+        }
+        return VIRTUAL_CONTEXT_LINES;
+    }
+
+    /**
+     * Returns whether the source code will be tokenized on the server. If enabled, then source code in one of the
+     * languages supported by the {@link SyntaxHighlighter} is rendered with the Prism token spans, so that the browser
+     * does not need to tokenize the code anymore. Source code in other languages is still highlighted by Prism.js.
+     *
+     * @return {@code true} if the source code will be tokenized on the server, {@code false} if the source code will
+     *         be tokenized by Prism.js in the browser
+     */
+    boolean isServerSideHighlighting() {
+        return serverSideHighlighting;
+    }
+
+    /**
+     * Returns whether all lines will be rendered as a single code block. Then the marked lines are highlighted by the
+     * Prism line-highlight plugin and the info panels are shown as overlays. Otherwise, the marked lines and the info
+     * panels are rendered as separate blocks between the unmarked lines.
+     *
+     * @return {@code true} if all lines will be rendered as a single code block, {@code false} otherwise
+     */
+    boolean isSingleCodeBlock() {
+        return singleCodeBlock || virtualScrolling;
+    }
+
+    /**
+     * Returns whether the source code will be shown in a virtual scrolling viewer. Then only a window of lines around
+     * the marker is rendered as a single code block, the viewer fetches the other lines while the user scrolls and
+     * keeps only the visible lines in the DOM.
+     *
+     * @return {@code true} if the source code will be shown in a virtual scrolling viewer, {@code false} otherwise
+     */
+    boolean isVirtualScrolling() {
+        return virtualScrolling;
+    }
+
+    /**
+     * Returns whether the line numbers will be rendered on the server rather than by the Prism line-numbers plugin.
+     * Then each line starts with an empty link with the ID {@code L<line>} that shows the line number using CSS, so
+     * the browser does not need to measure the lines and deep links to a line work without scripts. The line numbers
+     * are only rendered if the plugin profile contains line numbers.
+     *
+     * @return {@code true} if the line numbers will be rendered on the server, {@code false} otherwise
+     */
+    boolean isServerSideLineNumbers() {
+        return serverSideLineNumbers && pluginProfile.isLineNumbers();
+    }
+
+    /**
+     * Returns whether the HTML will be written using minimal markup. Then the language and plugin classes are written
+     * only once for the {@code pre} element rather than for each code block.
+     *
+     * @return {@code true} if the HTML will be written using minimal markup, {@code false} otherwise
+     */
+    boolean isCompactOutput() {
+        return compactOutput;
+    }
+
+    /**
+     * Returns the Prism plugins that will be applied to the code blocks.
+     *
+     * @return the plugin profile
+     */
+    PluginProfile getPluginProfile() {
+        return pluginProfile;
+    }
+
+    /**
+     * Returns the first line that will be rendered if the first marked line is the specified line.
+     *
+     * @param markedLineStart
+     *         the first marked line
+     *
+     * @return the first line to render (lines start at 1)
+     */
+    int getFirstLine(final int markedLineStart) {
+        if (isWindowed()) {
+            return Math.max(1, markedLineStart - getWindowContextLines());
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the last line that will be rendered if the last marked line is the specified line.
+     *
+     * @param markedLineEnd
+     *         the last marked line
+     *
+     * @return the last line to render (lines start at 1)
+     */
+    int getLastLine(final int markedLineEnd) {
+        if (isWindowed()) {
+            return (int) Math.min(Integer.MAX_VALUE, (long) Math.max(markedLineEnd, 1) + getWindowContextLines());
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RenderOptions that = (RenderOptions) o;
+        return contextLines == that.contextLines
+                && serverSideHighlighting == that.serverSideHighlighting
+                && singleCodeBlock == that.singleCodeBlock
+                && virtualScrolling == that.virtualScrolling
+                && serverSideLineNumbers == that.serverSideLineNumbers
+                && compactOutput == that.compactOutput
+                && pluginProfile == that.pluginProfile;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contextLines, serverSideHighlighting, singleCodeBlock, virtualScrolling,
+                serverSideLineNumbers, compactOutput, pluginProfile);
+    }
+
+    /**
+     * Creates {@link RenderOptions} using the builder pattern.
+     */
+    @SuppressWarnings({"ParameterHidesMemberVariable", "checkstyle:HiddenField"})
+    static class RenderOptionsBuilder {
+        private int contextLines;
+        private boolean serverSideHighlighting;
+        private boolean singleCodeBlock;
+        private boolean virtualScrolling;
+        private boolean serverSideLineNumbers;
+        private boolean compactOutput;
+        private PluginProfile pluginProfile = PluginProfile.FULL;
+
+        /**
+         * Defines the number of lines that will be rendered before and after the marker. If this value is not
+         * positive, then the whole file will be rendered.
+         *
+         * @param contextLines
+         *         the number of context lines
+         *
+         * @return this builder
+         */
+        RenderOptionsBuilder withContextLines(final int contextLines) {
+            this.contextLines = contextLines;
+            return this;
+        }
+
+        /**
+         * Defines whether the source code will be tokenized on the server rather than by Prism.js in the browser.
+         *
+         * @param serverSideHighlighting
+         *         {@code true} if the source code should be tokenized on the server
+         *
+         * @return this builder
+         */
+        RenderOptionsBuilder withServerSideHighlighting(final boolean serverSideHighlighting) {
+            this.serverSideHighlighting = serverSideHighlighting;
+            return this;
+        }
+
+        /**
+         * Defines whether all lines will be rendered as a single code block, with the marked lines highlighted by the
+         * Prism line-highlight plugin and the info panels shown as overlays.
+         *
+         * @param singleCodeBlock
+         *         {@code true} if all lines should be rendered as a single code block
+         *
+         * @return this builder
+         */
+        RenderOptionsBuilder withSingleCodeBlock(final boolean singleCodeBlock) {
+            this.singleCodeBlock = singleCodeBlock;
+            return this;
+        }
+
+        /**
+         * Defines whether the source code will be shown in a virtual scrolling viewer. Then only a window of lines
+         * around the marker will be rendered as a single code block. If no context lines are defined, then
+         * {@link #VIRTUAL_CONTEXT_LINES} lines before and after the marker are rendered.
+         *
+         * @param virtualScrolling
+         *         {@code true} if the source code should be shown in a virtual scrolling viewer
+         *
+         * @return this builder
+         */
+        RenderOptionsBuilder withVirtualScrolling(final boolean virtualScrolling) {
+            this.virtualScrolling = virtualScrolling;
+            return this;
+        }
+
+        /**
+         * Defines whether the line numbers will be rendered on the server rather than by the Prism line-numbers
+         * plugin.
+         *
+         * @param serverSideLineNumbers
+         *         {@code true} if the line numbers and line anchors should be rendered on the server
+         *
+         * @return this builder
+         */
+        RenderOptionsBuilder withServerSideLineNumbers(final boolean serverSideLineNumbers) {
+            this.serverSideLineNumbers = serverSideLineNumbers;
+            return this;
+        }
+
+        /**
+         * Defines whether the HTML will be written using minimal markup.
+         *
+         * @param compactOutput
+         *         {@code true} if the classes of the code blocks should be written only once
+         *
+         * @return this builder
+         */
+        RenderOptionsBuilder withCompactOutput(final boolean compactOutput) {
+            this.compactOutput = compactOutput;
+            return this;
+        }
+
+        /**
+         * Defines the Prism plugins that will be applied to the code blocks.
+         *
+         * @param pluginProfile
+         *         the plugin profile
+         *
+         * @return this builder
+         */
+        RenderOptionsBuilder withPluginProfile(final PluginProfile pluginProfile) {
+            this.pluginProfile = pluginProfile;
+            return this;
+        }
+
+        /**
+         * Creates an immutable {@link RenderOptions} instance using the configured properties.
+         *
+         * @return the new options
+         */
+        RenderOptions build() {
+            return new RenderOptions(contextLines, serverSideHighlighting, singleCodeBlock, virtualScrolling,
+                    serverSideLineNumbers, compactOutput, pluginProfile);
+        }
+    }
+}
@@ -36,13 +36,27 @@ public class Sanitizer {
      */
     public String render(final String html) {
         try {
-            return formatter.translate(html);
+            return translate(html);
         }
         catch (IOException exception) {
             return ExceptionUtils.getRootCauseMessage(exception);
         }
     }
 
+    /**
+     * Translates the specified HTML code using the markup formatter.
+     *
+     * @param html
+     *         the HTML to translate
+     *
+     * @return safe HTML
+     * @throws IOException
+     *         if the markup formatter fails
+     */
+    String translate(final String html) throws IOException {
+        return formatter.translate(html);
+    }
+
     /**
      * Renders the specified HTML code. Removes unsafe HTML constructs.
      *
@@ -1,24 +1,103 @@
 package io.jenkins.plugins.prism;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.text.StringEscapeUtils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpSession;
+
+import org.apache.commons.io.input.SequenceReader;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import org.apache.commons.jelly.XMLOutput;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.verb.POST;
+import hudson.PluginWrapper;
 import hudson.model.ModelObject;
 import hudson.model.Run;
+import jenkins.model.Jenkins;
+
+import io.jenkins.plugins.prism.BoundedLineReader.Limit;
+import io.jenkins.plugins.prism.EntityTag.EntityTagBuilder;
+import io.jenkins.plugins.prism.RenderOptions.RenderOptionsBuilder;
 
 /**
  * Renders a source code file with Prism syntax highlighting in a separate Jenkins view. Optionally, highlights a marker
  * in the source code: either a line, some characters in a line, or a multi-line block.
  *
+ * <p>
+ * The source code is not rendered when this model is created. Rather, it is streamed line by line to the response
+ * when the view is rendered, see {@link #writeSourceCode(XMLOutput)}. If the model is created with a
+ * {@link SourceCodeSupplier}, then the source code file is not even opened before the view is rendered. The model
+ * does not keep the source code (or the rendered HTML) after the response has been written.
+ * </p>
+ *
+ * <p>
+ * The source code files of a completed build are immutable. So the view of such a file is sent with an entity tag,
+ * and a conditional request for an unchanged view is answered with {@code 304 Not Modified} before the file is read,
+ * see {@link #doIndex(StaplerRequest2, StaplerResponse2)}.
+ * </p>
+ *
  * @author Ullrich Hafner
  */
 public class SourceCodeViewModel implements ModelObject {
+    /**
+     * The maximum number of lines that will be returned by
+     * {@link #doLines(StaplerRequest2, int, int, String, StaplerResponse2)}.
+     */
+    static final int MAX_LINES_PER_REQUEST = 5000;
+    static final String FORMAT_HTML = "html";
+    static final String FORMAT_JSON = "json";
+    /** Source code files up to this number of characters are stored in the {@link RenderCache}. */
+    static final int MAX_CACHED_SOURCE_LENGTH = 1024 * 1024;
+
+    /** The number of lines before and after the markers that are shown in an excerpt of a large file. */
+    static final int EXCERPT_CONTEXT_LINES = 50;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MEGA_BYTE = 1024L * 1024;
+
     private final Run<?, ?> owner;
     private final String fileName;
-    private final String sourceCode;
+    private final SourceCodeSupplier sourceCodeSupplier;
+    @CheckForNull
+    private Reader sourceCodeReader;
+    @CheckForNull
+    private final Path sourceFile;
+    private final Charset charset;
+    private final List<Marker> markers;
+    private final StringBuilder prefix = new StringBuilder();
+    @CheckForNull
+    private String content;
+    private boolean isPrefixRead;
+    @CheckForNull
+    private PluginProfile pluginProfile;
 
     /**
      * Creates a new source code view model instance.
@@ -34,25 +113,390 @@ public class SourceCodeViewModel implements ModelObject {
      */
     public SourceCodeViewModel(final Run<?, ?> owner, final String fileName, final Reader sourceCodeReader,
             final Marker marker) {
+        this(owner, fileName, sourceCodeReader, List.of(marker));
+    }
+
+    /**
+     * Creates a new source code view model instance that highlights several markers.
+     *
+     * @param owner
+     *         the current build as owner of this view
+     * @param fileName
+     *         the file name of the shown content
+     * @param sourceCodeReader
+     *         the source code file to show, provided by a {@link Reader} instance
+     * @param markers
+     *         the blocks of lines (or parts of lines) to mark in the source code view, the markers may overlap
+     */
+    public SourceCodeViewModel(final Run<?, ?> owner, final String fileName, final Reader sourceCodeReader,
+            final List<Marker> markers) {
+        this(owner, fileName, () -> sourceCodeReader, sourceCodeReader, null, StandardCharsets.UTF_8, markers);
+    }
+
+    /**
+     * Creates a new source code view model instance. The source code file is opened only if the view is actually
+     * rendered, so no file is opened for requests that do not show the source code (e.g., HEAD requests, redirects,
+     * or conditional requests that are answered with {@code 304 Not Modified}).
+     *
+     * @param owner
+     *         the current build as owner of this view
+     * @param fileName
+     *         the file name of the shown content
+     * @param sourceCodeSupplier
+     *         opens the source code file to show
+     * @param marker
+     *         a block of lines (or a part of a line) to mark in the source code view
+     */
+    public SourceCodeViewModel(final Run<?, ?> owner, final String fileName,
+            final SourceCodeSupplier sourceCodeSupplier, final Marker marker) {
+        this(owner, fileName, sourceCodeSupplier, List.of(marker));
+    }
+
+    /**
+     * Creates a new source code view model instance that highlights several markers. The source code file is opened
+     * only if the view is actually rendered, so no file is opened for requests that do not show the source code
+     * (e.g., HEAD requests, redirects, or conditional requests that are answered with {@code 304 Not Modified}).
+     *
+     * @param owner
+     *         the current build as owner of this view
+     * @param fileName
+     *         the file name of the shown content
+     * @param sourceCodeSupplier
+     *         opens the source code file to show
+     * @param markers
+     *         the blocks of lines (or parts of lines) to mark in the source code view, the markers may overlap
+     */
+    public SourceCodeViewModel(final Run<?, ?> owner, final String fileName,
+            final SourceCodeSupplier sourceCodeSupplier, final List<Marker> markers) {
+        this(owner, fileName, sourceCodeSupplier, null, null, StandardCharsets.UTF_8, markers);
+    }
+
+    /**
+     * Creates a new source code view model instance for a source code file that has been stored in the file system
+     * (e.g., in the build folder). The file is opened only if the view is actually rendered. Ranges of lines are read
+     * by seeking to the first line of the range using a {@link LineIndex}: the index is created when a range of the
+     * file is requested for the first time, unless it already has been stored by {@link LineIndex#store(Path)}. The
+     * lines of such a range are read through a small window of bytes, see {@link WindowedLineReader}.
+     *
+     * @param owner
+     *         the current build as owner of this view
+     * @param fileName
+     *         the file name of the shown content
+     * @param sourceFile
+     *         the source code file to show
+     * @param charset
+     *         the character set of the source code file
+     * @param markers
+     *         the blocks of lines (or parts of lines) to mark in the source code view, the markers may overlap
+     */
+    public SourceCodeViewModel(final Run<?, ?> owner, final String fileName, final Path sourceFile,
+            final Charset charset, final List<Marker> markers) {
+        this(owner, fileName, () -> Files.newBufferedReader(sourceFile, charset), null, sourceFile, charset, markers);
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private SourceCodeViewModel(final Run<?, ?> owner, final String fileName,
+            final SourceCodeSupplier sourceCodeSupplier, @CheckForNull final Reader sourceCodeReader,
+            @CheckForNull final Path sourceFile, final Charset charset, final List<Marker> markers) {
         this.owner = owner;
         this.fileName = fileName;
-        sourceCode = render(sourceCodeReader, marker);
+        this.sourceCodeSupplier = sourceCodeSupplier;
+        this.sourceCodeReader = sourceCodeReader;
+        this.sourceFile = sourceFile;
+        this.charset = charset;
+        this.markers = new ArrayList<>(markers);
     }
 
     public PrismConfiguration getPrismConfiguration() {
         return PrismConfiguration.getInstance();
     }
 
-    private String render(final Reader affectedFile, final Marker marker) {
-        try (BufferedReader reader = new BufferedReader(affectedFile)) {
+    /**
+     * Returns the Prism grammar components that are required to highlight the source code file. The components are
+     * sorted so that each component is loaded after its dependencies.
+     *
+     * @return the required grammar components, or an empty list if the grammars should be loaded by the Prism
+     *         autoloader
+     */
+    public List<String> getGrammars() {
+        return PrismGrammars.getInstance().getGrammars(SourcePrinter.selectLanguageClass(fileName));
+    }
+
+    /**
+     * Returns whether the source code is tokenized on the server rather than by Prism.js in the browser.
+     *
+     * @return {@code true} if the source code is tokenized on the server
+     */
+    public boolean isServerSideHighlighting() {
+        return PrismAppearanceConfiguration.getInstance().isServerSideHighlighting();
+    }
+
+    /**
+     * Returns the time budget of Prism to highlight the source code file in the browser.
+     *
+     * @return the time budget in seconds, or 0 if the highlighting should not be aborted
+     */
+    public int getHighlightingTimeout() {
+        return PrismAppearanceConfiguration.getInstance().getHighlightingTimeout();
+    }
+
+    /**
+     * Returns the Prism plugins that will be applied to the source code file. The profile is selected using the size
+     * and the number of lines of the file, see {@link PrismAppearanceConfiguration#selectPluginProfile(long, long)}.
+     * Files that are larger than {@link #MAX_CACHED_SOURCE_LENGTH} characters always use the minimal profile. For a
+     * stored file, the size is taken from the file system, so that a large file is not read to select the profile.
+     * The profile is selected only once, so the page and the rendered source code use the same profile, even if the
+     * source code has already been released.
+     *
+     * @return the plugin profile
+     */
+    public PluginProfile getPluginProfile() {
+        if (pluginProfile == null) {
+            pluginProfile = selectPluginProfile();
+        }
+        return pluginProfile;
+    }
+
+    private PluginProfile selectPluginProfile() {
+        try {
+            if (sourceFile != null && Files.size(sourceFile) > MAX_CACHED_SOURCE_LENGTH) {
+                return PluginProfile.MINIMAL;
+            }
+            return readSmallFile()
+                    .map(source -> PrismAppearanceConfiguration.getInstance()
+                            .selectPluginProfile(source.length(), source.lines().count()))
+                    .orElse(PluginProfile.MINIMAL);
+        }
+        catch (IOException exception) {
+            return PluginProfile.FULL; // the error will be shown when the source code is rendered
+        }
+    }
+
+    private RenderOptions createRenderOptions() {
+        PrismAppearanceConfiguration configuration = PrismAppearanceConfiguration.getInstance();
+        return new RenderOptionsBuilder()
+                .withContextLines(configuration.getContextLines())
+                .withServerSideHighlighting(configuration.isServerSideHighlighting())
+                .withSingleCodeBlock(configuration.isSingleCodeBlock())
+                .withVirtualScrolling(configuration.isVirtualScrolling())
+                .withServerSideLineNumbers(configuration.isServerSideLineNumbers())
+                .withCompactOutput(configuration.isCompactOutput())
+                .withPluginProfile(getPluginProfile())
+                .build();
+    }
+
+    private void render(final Writer writer) throws IOException {
+        try {
             SourcePrinter sourcePrinter = new SourcePrinter();
-            return sourcePrinter.render(fileName, reader.lines(), marker);
+            RenderOptions options = createRenderOptions();
+            PrismConfiguration limits = PrismConfiguration.getInstance();
+            Set<Limit> exceededLimits = findExceededLimits(limits);
+            if (!exceededLimits.isEmpty()) {
+                renderLargeFile(sourcePrinter, exceededLimits, limits, options, writer);
+                return;
+            }
+
+            Optional<String> source = readSmallFile();
+            if (source.isPresent()) {
+                String text = source.get();
+                sourcePrinter.render(fileName, createDigest(text), text.lines(), markers, options, writer);
+            }
+            else { // large files are streamed and not cached, the limits are checked while reading
+                BoundedLineReader reader = new BoundedLineReader(createLargeFileReader(),
+                        getMaximumSize(limits), limits.getMaximumLines(), limits.getMaximumLineLength());
+                try (Stream<String> lines = reader.lines()) {
+                    sourcePrinter.render(fileName, lines, markers, options, writer);
+                }
+                if (!reader.getExceededLimits().isEmpty()) {
+                    writeNotice(reader.getExceededLimits(), Messages.SourceCodeViewModel_Truncated(), limits,
+                            writer);
+                }
+            }
+        }
+        catch (IOException | UncheckedIOException exception) {
+            writer.write(StringEscapeUtils.escapeHtml4(String.format("%s%n%s",
+                    ExceptionUtils.getMessage(exception), ExceptionUtils.getStackTrace(exception))));
+        }
+        finally {
+            closeSourceCode();
+        }
+    }
+
+    /**
+     * Returns the limits of the {@link PrismConfiguration} that are exceeded by the source code file. Only the limits
+     * that can be checked without reading the whole file into memory are returned: if the size of the file is known
+     * (see {@link SourceCodeSupplier#getSize()}) and exceeds the limit, then the file is not read at all. All limits
+     * of a file that is not larger than {@link #MAX_CACHED_SOURCE_LENGTH} are checked in memory. The limits of a
+     * larger file are checked while it is streamed, see {@link #render(Writer)}.
+     */
+    private Set<Limit> findExceededLimits(final PrismConfiguration limits) throws IOException {
+        long maximumSize = getMaximumSize(limits);
+        OptionalLong size = getSourceSize();
+        if (maximumSize > 0 && size.isPresent() && size.getAsLong() > maximumSize) {
+            return EnumSet.of(Limit.SIZE);
+        }
+
+        Optional<String> source = readSmallFile();
+        if (source.isEmpty()) {
+            return EnumSet.noneOf(Limit.class);
+        }
+        return new BoundedLineReader(new StringReader(source.get()), size.isPresent() ? 0 : maximumSize,
+                limits.getMaximumLines(), limits.getMaximumLineLength()).scan();
+    }
+
+    private long getMaximumSize(final PrismConfiguration limits) {
+        return limits.getMaximumFileSize() * MEGA_BYTE;
+    }
+
+    private OptionalLong getSourceSize() throws IOException {
+        if (sourceFile != null) {
+            return OptionalLong.of(Files.size(sourceFile));
+        }
+        return sourceCodeSupplier.getSize();
+    }
+
+    /**
+     * Renders a source code file that exceeds the limits of the {@link PrismConfiguration}. Depending on the
+     * configured {@link LargeFileMode}, the file is shown as plain text, as an excerpt around the markers, or not at
+     * all. A notice that describes the exceeded limits and the chosen mode is shown above the source code.
+     */
+    private void renderLargeFile(final SourcePrinter sourcePrinter, final Set<Limit> exceededLimits,
+            final PrismConfiguration limits, final RenderOptions options, final Writer writer) throws IOException {
+        LargeFileMode mode = limits.getLargeFileMode();
+        writeNotice(exceededLimits, getModeMessage(mode), limits, writer);
+
+        if (mode == LargeFileMode.PLAIN_TEXT) {
+            try (Stream<String> lines = new BoundedLineReader(openSourceCode(), getMaximumSize(limits),
+                    limits.getMaximumLines(), limits.getMaximumLineLength()).lines()) {
+                sourcePrinter.renderPlainText(lines, writer);
+            }
         }
-        catch (IOException e) {
-            return String.format("%s%n%s", ExceptionUtils.getMessage(e), ExceptionUtils.getStackTrace(e));
+        else if (mode == LargeFileMode.EXCERPT) {
+            int contextLines = options.getContextLines() > 0 ? options.getContextLines() : EXCERPT_CONTEXT_LINES;
+            RenderOptions excerpt = new RenderOptionsBuilder()
+                    .withContextLines(contextLines)
+                    .withSingleCodeBlock(options.isSingleCodeBlock())
+                    .withServerSideLineNumbers(options.isServerSideLineNumbers())
+                    .withCompactOutput(options.isCompactOutput())
+                    .withPluginProfile(options.getPluginProfile())
+                    .build();
+            try (Stream<String> lines = new BoundedLineReader(openSourceCode(),
+                    limits.getMaximumLineLength()).lines()) {
+                sourcePrinter.render(fileName, lines, markers, excerpt, writer);
+            }
         }
     }
 
+    private String getModeMessage(final LargeFileMode mode) {
+        switch (mode) {
+            case PLAIN_TEXT:
+                return Messages.SourceCodeViewModel_Mode_PLAIN_TEXT();
+            case EXCERPT:
+                return Messages.SourceCodeViewModel_Mode_EXCERPT();
+            default:
+                return Messages.SourceCodeViewModel_Mode_DOWNLOAD();
+        }
+    }
+
+    private void writeNotice(final Set<Limit> exceededLimits, final String action, final PrismConfiguration limits,
+            final Writer writer) throws IOException {
+        StringBuilder notice = new StringBuilder();
+        for (Limit limit : exceededLimits) {
+            notice.append(getLimitMessage(limit, limits)).append(' ');
+        }
+        notice.append(action);
+
+        writer.write("<div class=\"source-notice alert alert-warning\" role=\"alert\">");
+        HtmlEscaper.escape(notice, writer);
+        writer.write(" <a href=\"download\">");
+        HtmlEscaper.escape(Messages.SourceCodeViewModel_Download(), writer);
+        writer.write("</a></div>");
+    }
+
+    private String getLimitMessage(final Limit limit, final PrismConfiguration limits) {
+        switch (limit) {
+            case SIZE:
+                return Messages.SourceCodeViewModel_Limit_SIZE(limits.getMaximumFileSize());
+            case LINES:
+                return Messages.SourceCodeViewModel_Limit_LINES(limits.getMaximumLines());
+            default:
+                return Messages.SourceCodeViewModel_Limit_LINE_LENGTH(limits.getMaximumLineLength());
+        }
+    }
+
+    /**
+     * Reads the whole file if it is not larger than {@link #MAX_CACHED_SOURCE_LENGTH}. Otherwise, the characters read
+     * so far are stored in the prefix, the remaining characters can be read using {@link #createLargeFileReader()}.
+     * The file is read only once, subsequent calls return the same result.
+     */
+    private Optional<String> readSmallFile() throws IOException {
+        if (!isPrefixRead) {
+            isPrefixRead = true;
+            char[] buffer = new char[BUFFER_SIZE];
+            Reader reader = getSourceCodeReader();
+            int read = reader.read(buffer);
+            while (read != -1) {
+                prefix.append(buffer, 0, read);
+                if (prefix.length() > MAX_CACHED_SOURCE_LENGTH) {
+                    return Optional.empty();
+                }
+                read = reader.read(buffer);
+            }
+            content = prefix.toString();
+        }
+        return Optional.ofNullable(content);
+    }
+
+    /**
+     * Opens the whole source code file, either from the characters that have been read into memory or from the
+     * prefix and the remaining characters of the reader.
+     */
+    private Reader openSourceCode() throws IOException {
+        if (content != null) {
+            return new StringReader(content);
+        }
+        return createLargeFileReader();
+    }
+
+    private Reader createLargeFileReader() throws IOException {
+        return new SequenceReader(new StringReader(prefix.toString()), getSourceCodeReader());
+    }
+
+    private Reader getSourceCodeReader() throws IOException {
+        if (sourceCodeReader == null) {
+            sourceCodeReader = sourceCodeSupplier.open();
+        }
+        return sourceCodeReader;
+    }
+
+    /**
+     * Closes the source code file (if it has been opened) and releases the characters that have been read, so that
+     * the model does not hold the source code after the response has been written.
+     */
+    private void closeSourceCode() throws IOException {
+        prefix.setLength(0);
+        prefix.trimToSize();
+        content = null;
+        if (sourceCodeReader != null) {
+            sourceCodeReader.close();
+        }
+    }
+
+    private String createDigest(final String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    private String getBaseName() {
+        String baseName = StringUtils.substringAfterLast(fileName.replace('\\', '/'), "/");
+        return StringUtils.defaultIfEmpty(baseName, fileName);
+    }
+
     @Override
     public String getDisplayName() {
         return fileName;
@@ -68,12 +512,366 @@ public class SourceCodeViewModel implements ModelObject {
     }
 
     /**
-     * Returns the colorized source code.
+     * Writes the colorized source code to the specified output of the view. The source code is read, escaped and
+     * written line by line, so the memory consumption does not depend on the size of the source code file. Note that
+     * the source code can be rendered only once.
+     *
+     * @param output
+     *         the output of the Jelly view
+     *
+     * @throws IOException
+     *         if the source code could not be written
+     */
+    public void writeSourceCode(final XMLOutput output) throws IOException {
+        Writer writer = output.asWriter();
+        render(writer);
+        writer.flush();
+    }
+
+    /**
+     * Returns the colorized source code. Note that the whole file will be rendered into memory: views should use
+     * {@link #writeSourceCode(XMLOutput)} instead. The source code can be rendered only once.
      *
      * @return the source code
      */
     public String getSourceCode() {
-        return sourceCode;
+        try {
+            StringWriter writer = new StringWriter();
+            render(writer);
+            return writer.toString();
+        }
+        catch (IOException exception) {
+            return String.format("%s%n%s",
+                    ExceptionUtils.getMessage(exception), ExceptionUtils.getStackTrace(exception));
+        }
     }
-}
 
+    /**
+     * Shows the view of the source code file. If the build is completed, then the view is sent with a strong entity
+     * tag. If the request contains a matching {@code If-None-Match} header, then the response is
+     * {@code 304 Not Modified}, and the source code file is not read at all. The same holds for HEAD requests. No
+     * {@code Last-Modified} header is sent:
+     * the view depends on the configuration and the user, so the modification time of the build is not sufficient to
+     * validate a cached view.
+     *
+     * @param request
+     *         Stapler request
+     * @param response
+     *         Stapler response
+     *
+     * @throws IOException
+     *         if the view could not be written
+     * @throws ServletException
+     *         if the view could not be rendered
+     */
+    public void doIndex(final StaplerRequest2 request, final StaplerResponse2 response)
+            throws IOException, ServletException {
+        if (isNotModified(createEntityTag(request), request, response)) {
+            return;
+        }
+        if ("HEAD".equals(request.getMethod())) { // the headers are sufficient, the file does not need to be read
+            closeSourceCode();
+            response.setContentType("text/html;charset=UTF-8");
+            return;
+        }
+        request.getView(this, "index.jelly").forward(request, response);
+    }
+
+    /**
+     * Sends the specified entity tag and checks the {@code If-None-Match} header of the request. If the tag matches,
+     * then the status {@code 304 Not Modified} is set and the source code is released.
+     */
+    private boolean isNotModified(final Optional<EntityTag> entityTag, final StaplerRequest2 request,
+            final StaplerResponse2 response) throws IOException {
+        if (entityTag.isEmpty()) {
+            return false;
+        }
+        response.setHeader("ETag", entityTag.get().getValue());
+        response.setHeader("Cache-Control", "private, no-cache");
+        if (entityTag.get().matches(request.getHeader("If-None-Match"))) {
+            closeSourceCode();
+            response.setStatus(StaplerResponse2.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the entity tag of the view. Besides the build and the file name (that identify the immutable content of
+     * the file), the tag contains all other parts that influence the rendered page: the markers, the configuration,
+     * the version of this plugin and of Jenkins, the locale, and the user and session (the page header shows the user
+     * and contains the session bound crumb). The views of running builds get no tag, since their files may still
+     * change.
+     */
+    private Optional<EntityTag> createEntityTag(final StaplerRequest2 request) {
+        if (owner.isBuilding()) {
+            return Optional.empty();
+        }
+
+        EntityTagBuilder builder = new EntityTagBuilder()
+                .add(owner.getExternalizableId())
+                .add(fileName)
+                .add(getPluginVersion())
+                .add(Jenkins.VERSION)
+                .add(request.getLocale())
+                .add(Jenkins.getAuthentication2().getName());
+        HttpSession session = request.getSession(false);
+        builder.add(session == null ? null : session.getId());
+        for (Marker marker : markers) {
+            builder.add(marker.getLineStart()).add(marker.getColumnStart())
+                    .add(marker.getLineEnd()).add(marker.getColumnEnd())
+                    .add(marker.getTitle()).add(marker.getDescription()).add(marker.getIcon());
+        }
+
+        PrismAppearanceConfiguration appearance = PrismAppearanceConfiguration.getInstance();
+        builder.add(appearance.getTheme())
+                .add(appearance.getContextLines())
+                .add(appearance.isServerSideHighlighting())
+                .add(appearance.isServerSideLineNumbers())
+                .add(appearance.isCompactOutput())
+                .add(appearance.isSingleCodeBlock())
+                .add(appearance.isVirtualScrolling())
+                .add(appearance.getLeanProfileLines())
+                .add(appearance.getLeanProfileSize())
+                .add(appearance.getMinimalProfileLines())
+                .add(appearance.getHighlightingTimeout());
+        PrismConfiguration limits = getPrismConfiguration();
+        builder.add(limits.getMaximumFileSize())
+                .add(limits.getMaximumLines())
+                .add(limits.getMaximumLineLength())
+                .add(limits.getLargeFileMode());
+        return Optional.of(builder.build());
+    }
+
+    private String getPluginVersion() {
+        PluginWrapper plugin = Jenkins.get().getPluginManager().whichPlugin(SourceCodeViewModel.class);
+        return plugin == null ? StringUtils.EMPTY : plugin.getVersion();
+    }
+
+    /**
+     * Returns the specified range of lines of the source code. This method is invoked by the buttons of the view that
+     * load additional lines above or below the visible window of lines, and by the virtual scrolling viewer. Only the
+     * requested range is escaped (and highlighted), the lines before the range are skipped. The range is sent either
+     * as an HTML code block (format {@code html}, the default) or as a JSON object that contains the HTML of each line
+     * (format {@code json}), see {@link SourcePrinter#renderLinesAsJson(String, Stream, int, int, RenderOptions,
+     * Writer)}. Ranges of completed builds are sent with an entity tag, so a conditional request for an unchanged range
+     * is answered with {@code 304 Not Modified} without reading the file.
+     *
+     * @param request
+     *         Stapler request
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param format
+     *         the format of the response, either {@code html} or {@code json}
+     * @param response
+     *         Stapler response to write the range to
+     *
+     * @throws IOException
+     *         if the source code could not be read or written
+     */
+    public void doLines(final StaplerRequest2 request, @QueryParameter final int from, @QueryParameter final int to,
+            @QueryParameter final String format, final StaplerResponse2 response) throws IOException {
+        boolean json = FORMAT_JSON.equals(format);
+        if (!json && StringUtils.isNotEmpty(format) && !FORMAT_HTML.equals(format)) {
+            closeSourceCode();
+            response.sendError(StaplerResponse2.SC_BAD_REQUEST);
+            return;
+        }
+
+        int last = Math.min(to, Math.max(from, 1) + MAX_LINES_PER_REQUEST - 1);
+        if (isNotModified(createEntityTag(request, from, last, json), request, response)) {
+            return;
+        }
+
+        response.setContentType(json ? "application/json;charset=UTF-8" : "text/html;charset=UTF-8");
+        RenderOptions options = createRenderOptions();
+        Path file = sourceFile;
+        try {
+            Optional<LineIndex> index = file != null && canSeek(file, options) ? loadLineIndex(file) : Optional.empty();
+            if (index.isPresent()) {
+                renderIndexedRange(file, index.get(), from, last, json, options, response.getWriter());
+            }
+            else {
+                readSmallFile();
+                renderRange(openSourceCode(), 1, from, last, json, options, response.getWriter());
+            }
+        }
+        finally {
+            closeSourceCode();
+        }
+    }
+
+    /**
+     * Renders a range of lines of the stored source code file by seeking to the first line of the range using the
+     * {@link LineIndex}. The lines of the range are escaped directly from the buffer of a {@link WindowedLineReader}
+     * without creating a string for each line.
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void renderIndexedRange(final Path file, final LineIndex index, final int from, final int last,
+            final boolean json, final RenderOptions options, final Writer writer) throws IOException {
+        try (WindowedLineReader lines = new WindowedLineReader(file, charset,
+                PrismConfiguration.getInstance().getMaximumLineLength())) {
+            lines.seek(index, Math.min(Math.max(from, 1), index.getLineCount() + 1));
+            SourcePrinter printer = new SourcePrinter();
+            if (json) {
+                printer.renderLinesAsJson(fileName, lines, from, last, options, writer);
+            }
+            else {
+                printer.renderLines(fileName, lines, from, last, options, writer);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link LineIndex} of the stored source code file. If the index cannot be created, then the range is
+     * read without seeking, so the request does not fail because of the index.
+     */
+    private Optional<LineIndex> loadLineIndex(final Path file) {
+        try {
+            return Optional.of(LineIndex.load(file));
+        }
+        catch (IOException | UncheckedIOException exception) {
+            return Optional.empty();
+        }
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void renderRange(final Reader reader, final int firstLine, final int from, final int last,
+            final boolean json, final RenderOptions options, final Writer writer) throws IOException {
+        try (Stream<String> lines = new BoundedLineReader(reader,
+                PrismConfiguration.getInstance().getMaximumLineLength()).lines()) {
+            SourcePrinter printer = new SourcePrinter();
+            if (json) {
+                printer.renderLinesAsJson(fileName, lines, firstLine, from, last, options, writer);
+            }
+            else {
+                printer.renderLines(fileName, lines, firstLine, from, last, options, writer);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a range of lines of the stored source code file can be read by seeking to the first line of the
+     * range. This requires a file that is too large to be read into memory, and a character set that is supported by
+     * the {@link LineIndex}. The lines before the range are required by the server-side highlighter to determine the
+     * state of tokens that span several lines, so with server-side highlighting all lines are read.
+     */
+    private boolean canSeek(final Path file, final RenderOptions options) throws IOException {
+        return !options.isServerSideHighlighting() && LineIndex.isSupported(charset)
+                && Files.size(file) > MAX_CACHED_SOURCE_LENGTH;
+    }
+
+    private Optional<EntityTag> createEntityTag(final StaplerRequest2 request, final int from, final int last,
+            final boolean json) {
+        return createEntityTag(request).map(tag -> new EntityTagBuilder()
+                .add(tag.getValue()).add(from).add(last).add(json)
+                .build());
+    }
+
+    /**
+     * Records that Prism did not highlight the source code file within the time budget. This method is invoked by the
+     * script {@code prism-viewer.js} after the highlighting has been aborted. The language is derived from the file
+     * name, so the request contains no data that needs to be validated.
+     *
+     * @param response
+     *         Stapler response
+     *
+     * @throws IOException
+     *         if the source code reader could not be closed
+     */
+    @POST
+    public void doHighlightingTimeout(final StaplerResponse2 response) throws IOException {
+        try {
+            HighlightingTimeouts.getInstance().record(fileName, SourcePrinter.selectLanguageClass(fileName));
+            response.setStatus(StaplerResponse2.SC_NO_CONTENT);
+        }
+        finally {
+            closeSourceCode();
+        }
+    }
+
+    /**
+     * Sends the source code file as plain text attachment. This method is invoked by the link of the notice that is
+     * shown if the file exceeds the limits of the {@link PrismConfiguration}. The same limits apply to the download
+     * as to the plain text view: the file is cut off at the maximum size or number of lines, and long lines are
+     * truncated. The file is streamed line by line, so its content is not kept in memory.
+     *
+     * @param response
+     *         Stapler response to write the file to
+     *
+     * @throws IOException
+     *         if the source code could not be read or written
+     */
+    public void doDownload(final StaplerResponse2 response) throws IOException {
+        response.setContentType("text/plain;charset=UTF-8");
+        response.setHeader("Content-Disposition", createContentDisposition(getBaseName()));
+        PrismConfiguration limits = PrismConfiguration.getInstance();
+        try (Stream<String> lines = new BoundedLineReader(openSourceCode(), getMaximumSize(limits),
+                limits.getMaximumLines(), limits.getMaximumLineLength()).lines()) {
+            Writer writer = response.getWriter();
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                writer.write('\n');
+            }
+            writer.flush();
+        }
+        finally {
+            closeSourceCode();
+        }
+    }
+
+    /**
+     * Creates the {@code Content-Disposition} header of the download. The plain file name contains only printable
+     * US-ASCII characters (without quotes and backslashes), so it cannot split or break the header. The exact file
+     * name is sent as extended parameter that is encoded according to RFC 5987.
+     */
+    static String createContentDisposition(final String baseName) {
+        StringBuilder plain = new StringBuilder();
+        for (char character : baseName.toCharArray()) {
+            boolean isPrintable = character >= 0x20 && character < 0x7F && character != '"' && character != '\\';
+            plain.append(isPrintable ? character : '_');
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (byte value : baseName.getBytes(StandardCharsets.UTF_8)) {
+            char character = (char) (value & 0xFF);
+            if (character < 0x80 && (Character.isLetterOrDigit(character) || "!#$&+-.^_`|~".indexOf(character) >= 0)) {
+                encoded.append(character);
+            }
+            else {
+                encoded.append('%').append(String.format("%02X", value & 0xFF));
+            }
+        }
+        return "attachment; filename=\"" + plain + "\"; filename*=UTF-8''" + encoded;
+    }
+
+    /**
+     * Opens the source code file that is shown in a {@link SourceCodeViewModel}. The file is opened only when the
+     * view is rendered, and it is closed by the model afterward.
+     */
+    @FunctionalInterface
+    public interface SourceCodeSupplier {
+        /**
+         * Opens the source code file.
+         *
+         * @return a reader for the content of the source code file
+         * @throws IOException
+         *         if the file could not be opened
+         */
+        Reader open() throws IOException;
+
+        /**
+         * Returns the size of the source code file in bytes, if it is known without reading the file. If the size
+         * exceeds the limit of the {@link PrismConfiguration}, then the file is not read to check the other limits.
+         *
+         * @return the size of the source code file, or an empty result if the size is unknown
+         * @throws IOException
+         *         if the size could not be determined
+         */
+        default OptionalLong getSize() throws IOException {
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -1,5 +1,15 @@
 package io.jenkins.plugins.prism;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -10,11 +20,14 @@ import org.jenkins.ui.symbol.SymbolRequest.Builder;
 
 import edu.hm.hafner.util.LookaheadStream;
 import edu.hm.hafner.util.VisibleForTesting;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 
 import j2html.tags.ContainerTag;
 import j2html.tags.DomContent;
 import j2html.tags.UnescapedText;
 
+import org.jvnet.localizer.LocaleProvider;
+
 import io.jenkins.plugins.util.JenkinsFacade;
 
 import static j2html.TagCreator.*;
@@ -27,14 +40,29 @@ import static j2html.TagCreator.*;
  */
 @SuppressWarnings("PMD.GodClass")
 class SourcePrinter {
-    private static final Sanitizer SANITIZER = new Sanitizer();
+    private static final Sanitizer SANITIZER = new MemoizingSanitizer();
 
-    private static final ColumnMarker COLUMN_MARKER = new ColumnMarker("-n/a-");
     private static final String LINE_NUMBERS = "line-numbers";
     private static final String MATCH_BRACES = "match-braces";
+    private static final String SERVER_HIGHLIGHTED = "server-highlighted";
+    private static final String HIGHLIGHT = "highlight";
     private static final String ICON_MD = "icon-md";
+    private static final int FLUSH_INTERVAL = 1000;
+    private static final String DESCRIPTION_ID = "analysis-description";
+    private static final String LOAD_MORE_ABOVE = "above";
+    private static final String LOAD_MORE_BELOW = "below";
+
+    /**
+     * Lines with more characters are considered as abnormal (e.g., minified or generated code): such lines are neither
+     * tokenized on the server nor shown completely, only a window of {@link #LONG_LINE_CONTEXT} characters around the
+     * marked columns is rendered.
+     */
+    static final int LONG_LINE_LENGTH = 2000;
+    /** The number of characters that will be shown before and after the marked columns of a long line. */
+    static final int LONG_LINE_CONTEXT = 200;
 
     private final JenkinsFacade jenkinsFacade;
+    private final RenderCache renderCache;
 
     /**
      * Creates a new instance of {@link SourcePrinter}.
@@ -45,7 +73,13 @@ class SourcePrinter {
 
     @VisibleForTesting
     SourcePrinter(final JenkinsFacade jenkinsFacade) {
+        this(jenkinsFacade, RenderCache.getInstance());
+    }
+
+    @VisibleForTesting
+    SourcePrinter(final JenkinsFacade jenkinsFacade, final RenderCache renderCache) {
         this.jenkinsFacade = jenkinsFacade;
+        this.renderCache = renderCache;
     }
 
     /**
@@ -62,43 +96,772 @@ class SourcePrinter {
      * @return the source code as colorized HTML
      */
     public String render(final String fileName, final Stream<String> lines, final Marker marker) {
+        try {
+            StringWriter writer = new StringWriter();
+            render(fileName, lines, marker, writer);
+            return writer.toString();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception); // cannot happen for a StringWriter
+        }
+    }
+
+    /**
+     * Creates a colorized HTML snippet with the specified source code and writes it to the specified {@link Writer}.
+     * Highlights the specified issue and provides a clickable and collapsible element that shows the details for the
+     * issue. The source code is escaped and written line by line, so the whole file is never held in memory. The
+     * writer is flushed periodically so that the browser can start parsing the HTML before the file has been read
+     * completely.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code
+     * @param marker
+     *         the issue to show
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    public void render(final String fileName, final Stream<String> lines, final Marker marker,
+            final Writer writer) throws IOException {
+        render(fileName, lines, marker, RenderOptions.DEFAULT, writer);
+    }
+
+    /**
+     * Creates a colorized HTML snippet with the specified source code and writes it to the specified {@link Writer}.
+     * Highlights the specified issue and provides a clickable and collapsible element that shows the details for the
+     * issue. If the options define a window of context lines, then only the lines around the marker are rendered,
+     * additional lines can be loaded on demand using the buttons above and below the source code.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code
+     * @param marker
+     *         the issue to show
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    public void render(final String fileName, final Stream<String> lines, final Marker marker,
+            final RenderOptions options, final Writer writer) throws IOException {
+        render(fileName, lines, List.of(marker), options, writer);
+    }
+
+    /**
+     * Creates a colorized HTML snippet with the specified source code and writes it to the specified {@link Writer}.
+     * Highlights all specified markers and provides a clickable and collapsible element for each marker that shows
+     * its details. The markers are sorted by their line ranges, overlapping and nested markers are combined into a
+     * single highlighted block that is followed by the details of all markers in that block. The file is read in a
+     * single pass, independent of the number of markers. If the options define a window of context lines, then only
+     * the lines from the first to the last marker and the context lines around them are rendered.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code
+     * @param markers
+     *         the markers to show
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    public void render(final String fileName, final Stream<String> lines, final Collection<Marker> markers,
+            final RenderOptions options, final Writer writer) throws IOException {
+        try (LookaheadStream stream = new LookaheadStream(lines)) {
+            String language = selectLanguageClass(fileName);
+            SyntaxHighlighter highlighter = createHighlighter(language, options).orElse(null);
+            String[] classes = createClasses(language, highlighter, options);
+            List<MarkedRegion> regions = MarkedRegion.of(markers);
+            int firstLine = regions.isEmpty() ? 1 : options.getFirstLine(regions.get(0).getLineStart());
+            int lastLine = regions.isEmpty() ? options.getLastLine(1)
+                    : options.getLastLine(regions.get(regions.size() - 1).getLineEnd());
+
+            skipUntilLine(stream, firstLine - 1, highlighter);
+            if (options.isVirtualScrolling()) {
+                writeVirtualScrollingViewer(stream, regions, firstLine, lastLine, writer, highlighter, options,
+                        classes);
+                return;
+            }
+            if (firstLine > 1) {
+                writer.write(createLoadMoreButton(LOAD_MORE_ABOVE, Messages.SourcePrinter_LoadMoreAbove(),
+                        firstLine - 1, options));
+            }
+            if (options.isSingleCodeBlock()) {
+                writeSingleCodeBlock(stream, regions, firstLine, lastLine, writer, highlighter, options, classes);
+            }
+            else {
+                writer.write("<pre");
+                writePreClasses(writer, options, classes);
+                if (firstLine > 1) {
+                    writer.write(" data-start=\"" + firstLine + "\"");
+                }
+                writer.write(">");
+                String[] codeClasses = getCodeClasses(options, classes);
+                String[] markedClasses = options.isCompactOutput()
+                        ? new String[] {HIGHLIGHT} : addClass(classes, HIGHLIGHT);
+                int panel = 0;
+                for (MarkedRegion region : regions) {
+                    writeBlockUntilLine(stream, region.getLineStart() - 1, writer, highlighter, options, codeClasses);
+                    writeMarkedRegion(stream, region, writer, highlighter, options, markedClasses);
+                    for (Marker marker : region.getMarkers()) {
+                        writer.write(createInfoPanel(marker, panel++));
+                    }
+                }
+                writeBlockUntilLine(stream, lastLine, writer, highlighter, options, codeClasses);
+                writer.write("</pre>");
+            }
+            if (stream.hasNext()) {
+                writer.write(createLoadMoreButton(LOAD_MORE_BELOW, Messages.SourcePrinter_LoadMoreBelow(),
+                        lastLine + 1, options));
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes all lines as a single code block, so that Prism tokenizes the file only once. The marked lines are
+     * highlighted by the Prism line-highlight plugin using the {@code data-line} attribute of the {@code pre}
+     * element. The info panels are written after the code block: each panel has a {@code data-line} attribute with
+     * the first line of the marked region, so that the panels can be positioned as overlays next to the marked
+     * lines.
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void writeSingleCodeBlock(final LookaheadStream stream, final List<MarkedRegion> regions,
+            final int firstLine, final int lastLine, final Writer writer,
+            @CheckForNull final SyntaxHighlighter highlighter, final RenderOptions options, final String... classes)
+            throws IOException {
+        writer.write("<div class=\"source-code-block\">");
+        writer.write("<pre");
+        writePreClasses(writer, options, classes);
+        if (!regions.isEmpty()) {
+            writer.write(" data-line=\"" + createLineRanges(regions) + "\"");
+        }
+        if (firstLine > 1) {
+            writer.write(" data-start=\"" + firstLine + "\" data-line-offset=\"" + (firstLine - 1) + "\"");
+        }
+        writer.write(">");
+        writeCodeStart(writer, getCodeClasses(options, classes));
+        for (MarkedRegion region : regions) {
+            writeLinesUntil(stream, region.getLineStart() - 1, writer, highlighter, options);
+            writeMarkedLines(stream, region, writer, highlighter, options);
+        }
+        writeLinesUntil(stream, lastLine, writer, highlighter, options);
+        writeCodeEnd(writer);
+        writer.write("</pre>");
+
+        int panel = 0;
+        for (MarkedRegion region : regions) {
+            writer.write("<div class=\"analysis-overlay\" data-line=\"" + region.getLineStart() + "\">");
+            for (Marker marker : region.getMarkers()) {
+                writer.write(createInfoPanel(marker, panel++));
+            }
+            writer.write("</div>");
+        }
+        writer.write("</div>");
+    }
+
+    /**
+     * Writes the window of lines around the markers as a single code block into a scroll container for the virtual
+     * scrolling viewer. The remaining lines are only counted: the total number of lines is written at the end of the
+     * container so that the viewer can reserve the space for all lines and fetch the visible lines on demand.
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void writeVirtualScrollingViewer(final LookaheadStream stream, final List<MarkedRegion> regions,
+            final int firstLine, final int lastLine, final Writer writer,
+            @CheckForNull final SyntaxHighlighter highlighter, final RenderOptions options, final String... classes)
+            throws IOException {
+        writer.write("<div class=\"source-virtual\">");
+        writeSingleCodeBlock(stream, regions, firstLine, lastLine, writer, highlighter, options, classes);
+        while (stream.hasNext()) {
+            stream.next();
+        }
+        writer.write("<span class=\"source-virtual-lines\" data-total-lines=\"" + stream.getLine()
+                + "\" hidden></span>");
+        writer.write("</div>");
+        writer.flush();
+    }
+
+    private String createLineRanges(final List<MarkedRegion> regions) {
+        return regions.stream()
+                .map(region -> region.getLineStart() == region.getLineEnd()
+                        ? String.valueOf(region.getLineStart())
+                        : region.getLineStart() + "-" + region.getLineEnd())
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Creates a colorized HTML snippet with the specified source code and writes it to the specified {@link Writer}.
+     * The HTML is stored in the {@link RenderCache} using the digest of the source code content, the markers, the
+     * language, the options, and the locale of the current request as key. If the same source code has been rendered
+     * with the same markers and options before, then the cached HTML is written and the lines are not read at all.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param digest
+     *         the digest of the source code content
+     * @param lines
+     *         the lines of the source code
+     * @param markers
+     *         the markers to show
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     * @see #render(String, Stream, Collection, RenderOptions, Writer)
+     */
+    public void render(final String fileName, final String digest, final Stream<String> lines,
+            final Collection<Marker> markers, final RenderOptions options, final Writer writer) throws IOException {
+        RenderCache.Key key = new RenderCache.Key(digest, List.copyOf(markers), selectLanguageClass(fileName),
+                options, LocaleProvider.getLocale());
+        renderCache.render(key, output -> render(fileName, lines, markers, options, output), writer);
+    }
+
+    /**
+     * Renders the source code as plain escaped text and writes it to the specified {@link Writer}. The code block has
+     * no language class, so it will be neither highlighted nor processed by any Prism plugin.
+     *
+     * @param lines
+     *         the lines of the source code
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    public void renderPlainText(final Stream<String> lines, final Writer writer) throws IOException {
         try (LookaheadStream stream = new LookaheadStream(lines)) {
-            int start = marker.getLineStart();
-            int end = marker.getLineEnd();
+            writer.write("<pre class=\"source-plain-text\"><code>");
+            writeLinesUntil(stream, Integer.MAX_VALUE, writer, null, RenderOptions.DEFAULT);
+            writer.write("</code></pre>");
+            writer.flush();
+        }
+    }
 
-            StringBuilder before = readBlockUntilLine(stream, start - 1);
-            StringBuilder marked = readBlockUntilLine(stream, end);
-            StringBuilder after = readBlockUntilLine(stream, Integer.MAX_VALUE);
+    /**
+     * Renders the specified range of lines of the source code as a single code block and writes it to the specified
+     * {@link Writer}. The code block contains the attributes {@code data-from} and {@code data-to} with the actually
+     * rendered range and the attribute {@code data-more} that indicates if the file contains more lines after the
+     * range.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    public void renderLines(final String fileName, final Stream<String> lines, final int from, final int to,
+            final Writer writer) throws IOException {
+        renderLines(fileName, lines, from, to, RenderOptions.DEFAULT, writer);
+    }
 
+    /**
+     * Renders the specified range of lines of the source code as a single code block and writes it to the specified
+     * {@link Writer}. The code block contains the attributes {@code data-from} and {@code data-to} with the actually
+     * rendered range and the attribute {@code data-more} that indicates if the file contains more lines after the
+     * range.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    public void renderLines(final String fileName, final Stream<String> lines, final int from, final int to,
+            final RenderOptions options, final Writer writer) throws IOException {
+        renderLines(fileName, lines, 1, from, to, options, writer);
+    }
+
+    /**
+     * Renders the specified range of lines of the source code as a single code block and writes it to the specified
+     * {@link Writer}. In contrast to {@link #renderLines(String, Stream, int, int, RenderOptions, Writer)}, the
+     * stream of lines does not need to start with the first line of the file: the stream might have been positioned
+     * using a {@link LineIndex}. Note that lines that are not part of the stream cannot be passed to the server-side
+     * highlighter, so tokens that span several lines might not be highlighted correctly.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code, starting with the line {@code firstLine}
+     * @param firstLine
+     *         the line number of the first line of the stream (lines start at 1)
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public void renderLines(final String fileName, final Stream<String> lines, final int firstLine, final int from,
+            final int to, final RenderOptions options, final Writer writer) throws IOException {
+        try (LookaheadStream stream = new LookaheadStream(lines)) {
             String language = selectLanguageClass(fileName);
-            String code = asCode(before, language, LINE_NUMBERS, MATCH_BRACES)
-                    + asMarkedCode(marked, marker, language, LINE_NUMBERS, "highlight", MATCH_BRACES)
-                    + createInfoPanel(marker)
-                    + asCode(after, language, LINE_NUMBERS, MATCH_BRACES);
+            SyntaxHighlighter highlighter = createHighlighter(language, options).orElse(null);
+            int first = Math.max(from, 1);
+            int offset = firstLine - 1;
+            skipUntilLine(stream, first - 1 - offset, highlighter);
 
-            return pre().with(new UnescapedText(code)).renderFormatted();
+            writeRange(language, highlighter, asIterator(stream), stream.getLine() + offset, first, to, options,
+                    writer);
         }
     }
 
-    private StringBuilder readBlockUntilLine(final LookaheadStream stream, final int end) {
-        StringBuilder marked = new StringBuilder();
+    /**
+     * Renders the specified range of lines of a stored source code file as a single code block and writes it
+     * to the specified {@link Writer}. The lines before the range are skipped without decoding them, and the lines of
+     * the range are escaped directly from the buffer of the reader. The lines are not highlighted on the server.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the reader of the source code file, it might have been positioned using a {@link LineIndex}
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    void renderLines(final String fileName, final WindowedLineReader lines, final int from, final int to,
+            final RenderOptions options, final Writer writer) throws IOException {
+        int first = Math.max(from, 1);
+        lines.skipLines(first - 1 - lines.getLine());
+
+        writeRange(selectLanguageClass(fileName), null, lines, lines.getLine(), first, to, options, writer);
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void writeRange(final String language, @CheckForNull final SyntaxHighlighter highlighter,
+            final Iterator<? extends CharSequence> lines, final int previousLine, final int first, final int to,
+            final RenderOptions options, final Writer writer) throws IOException {
+        int lineNumber = previousLine;
+        StringWriter code = new StringWriter();
+        while (lines.hasNext() && lineNumber < to) {
+            CharSequence line = lines.next();
+            lineNumber++;
+            writeLineNumber(lineNumber, code, options);
+            writeLine(line, code, highlighter);
+        }
+        writer.write("<code");
+        if (!options.isCompactOutput()) {
+            writer.write(" class=\"" + String.join(" ", createClasses(language, highlighter, options)) + "\"");
+        }
+        writer.write(String.format(" data-from=\"%d\" data-to=\"%d\" data-more=\"%b\">",
+                first, lineNumber, lines.hasNext()));
+        writer.write(code.toString());
+        writeCodeEnd(writer);
+    }
+
+    /**
+     * Renders the specified range of lines of the source code as a JSON object and writes it to the specified
+     * {@link Writer}. The object contains the HTML of each rendered line in the array {@code lines}, the actually
+     * rendered range in the properties {@code from} and {@code to}, the property {@code more} that indicates if the
+     * file contains more lines after the range, and the classes of the code block in the property {@code classes}.
+     * The lines are escaped (and highlighted) in the same way as in {@link #renderLines(String, Stream, int, int,
+     * RenderOptions, Writer)}, so a client can insert them into an existing code block.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the JSON to
+     *
+     * @throws IOException
+     *         if the JSON could not be written
+     */
+    public void renderLinesAsJson(final String fileName, final Stream<String> lines, final int from, final int to,
+            final RenderOptions options, final Writer writer) throws IOException {
+        renderLinesAsJson(fileName, lines, 1, from, to, options, writer);
+    }
+
+    /**
+     * Renders the specified range of lines of the source code as a JSON object and writes it to the specified
+     * {@link Writer}. In contrast to {@link #renderLinesAsJson(String, Stream, int, int, RenderOptions, Writer)}, the
+     * stream of lines does not need to start with the first line of the file, see
+     * {@link #renderLines(String, Stream, int, int, int, RenderOptions, Writer)}.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the lines of the source code, starting with the line {@code firstLine}
+     * @param firstLine
+     *         the line number of the first line of the stream (lines start at 1)
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the JSON to
+     *
+     * @throws IOException
+     *         if the JSON could not be written
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public void renderLinesAsJson(final String fileName, final Stream<String> lines, final int firstLine,
+            final int from, final int to, final RenderOptions options, final Writer writer) throws IOException {
+        try (LookaheadStream stream = new LookaheadStream(lines)) {
+            String language = selectLanguageClass(fileName);
+            SyntaxHighlighter highlighter = createHighlighter(language, options).orElse(null);
+            int first = Math.max(from, 1);
+            int offset = firstLine - 1;
+            skipUntilLine(stream, first - 1 - offset, highlighter);
+
+            writeRangeAsJson(language, highlighter, asIterator(stream), stream.getLine() + offset, first, to,
+                    options, writer);
+        }
+    }
+
+    /**
+     * Renders the specified range of lines of a stored source code file as a JSON object and writes it to the
+     * specified {@link Writer}, see {@link #renderLines(String, WindowedLineReader, int, int, RenderOptions, Writer)}.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     * @param lines
+     *         the reader of the source code file, it might have been positioned using a {@link LineIndex}
+     * @param from
+     *         the first line to render (lines start at 1)
+     * @param to
+     *         the last line to render
+     * @param options
+     *         the options that control the rendering
+     * @param writer
+     *         the writer to write the JSON to
+     *
+     * @throws IOException
+     *         if the JSON could not be written
+     */
+    void renderLinesAsJson(final String fileName, final WindowedLineReader lines, final int from, final int to,
+            final RenderOptions options, final Writer writer) throws IOException {
+        int first = Math.max(from, 1);
+        lines.skipLines(first - 1 - lines.getLine());
+
+        writeRangeAsJson(selectLanguageClass(fileName), null, lines, lines.getLine(), first, to, options, writer);
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void writeRangeAsJson(final String language, @CheckForNull final SyntaxHighlighter highlighter,
+            final Iterator<? extends CharSequence> lines, final int previousLine, final int first, final int to,
+            final RenderOptions options, final Writer writer) throws IOException {
+        int lineNumber = previousLine;
+        writer.write("{\"lines\":[");
+        StringWriter html = new StringWriter();
+        String separator = StringUtils.EMPTY;
+        while (lines.hasNext() && lineNumber < to) {
+            CharSequence line = lines.next();
+            lineNumber++;
+            writer.write(separator);
+            separator = ",";
+            html.getBuffer().setLength(0);
+            writeLineNumber(lineNumber, html, options);
+            writeLine(line, html, highlighter);
+            html.getBuffer().setLength(html.getBuffer().length() - 1); // without the line terminator
+            writeJsonString(html.toString(), writer);
+        }
+        writer.write(String.format("],\"from\":%d,\"to\":%d,\"more\":%b,\"classes\":",
+                first, lineNumber, lines.hasNext()));
+        writeJsonString(String.join(" ", createClasses(language, highlighter, options)), writer);
+        writer.write('}');
+    }
+
+    private Iterator<String> asIterator(final LookaheadStream stream) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return stream.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return stream.next();
+            }
+        };
+    }
+
+    private void writeJsonString(final String value, final Writer writer) throws IOException {
+        writer.write('"');
+        writer.write(StringEscapeUtils.escapeJson(value));
+        writer.write('"');
+    }
+
+    private Optional<SyntaxHighlighter> createHighlighter(final String language, final RenderOptions options) {
+        if (options.isServerSideHighlighting()) {
+            return SyntaxHighlighter.create(language);
+        }
+        return Optional.empty();
+    }
+
+    private String[] createClasses(final String language, @CheckForNull final SyntaxHighlighter highlighter,
+            final RenderOptions options) {
+        List<String> classes = new ArrayList<>();
+        classes.add(language);
+        if (options.getPluginProfile().isLineNumbers() && !options.isServerSideLineNumbers()) {
+            classes.add(LINE_NUMBERS);
+        }
+        if (options.getPluginProfile().isMatchBraces()) {
+            classes.add(MATCH_BRACES);
+        }
+        if (highlighter != null) {
+            classes.add(SERVER_HIGHLIGHTED);
+        }
+        return classes.toArray(new String[0]);
+    }
+
+    /**
+     * Writes the classes of the code blocks as attribute of the {@code pre} element if the compact output is enabled.
+     * Prism (and its plugins) look up the language and the plugin classes in the ancestors of a code block, so the
+     * classes do not need to be repeated for each code block.
+     */
+    private void writePreClasses(final Writer writer, final RenderOptions options, final String... classes)
+            throws IOException {
+        if (options.isCompactOutput()) {
+            writer.write(" class=\"");
+            writer.write(String.join(" ", classes));
+            writer.write("\"");
+        }
+    }
+
+    private String[] getCodeClasses(final RenderOptions options, final String... classes) {
+        if (options.isCompactOutput()) {
+            return new String[0];
+        }
+        return classes;
+    }
+
+    private String[] addClass(final String[] classes, final String additionalClass) {
+        List<String> all = new ArrayList<>(List.of(classes));
+        all.add(Math.min(2, all.size()), additionalClass);
+        return all.toArray(new String[0]);
+    }
+
+    private void skipUntilLine(final LookaheadStream stream, final int end,
+            @CheckForNull final SyntaxHighlighter highlighter) {
         while (stream.hasNext() && stream.getLine() < end) {
-            marked.append(stream.next());
-            marked.append("\n");
+            String line = stream.next();
+            if (highlighter != null && !isLongLine(line)) {
+                highlighter.skip(line);
+            }
         }
-        return marked;
     }
 
-    private String createInfoPanel(final Marker marker) {
-        return createBox(marker).withClass("analysis-warning").render();
+    private String createLoadMoreButton(final String direction, final String label, final int line,
+            final RenderOptions options) {
+        return div().withClass("source-load-more")
+                .attr("data-direction", direction)
+                .attr("data-line", line)
+                .attr("data-count", options.getContextLines())
+                .with(button().withType("button")
+                        .withClasses("jenkins-button", "jenkins-button--tertiary")
+                        .withText(label))
+                .render();
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void writeBlockUntilLine(final LookaheadStream stream, final int end, final Writer writer,
+            @CheckForNull final SyntaxHighlighter highlighter, final RenderOptions options, final String... classes)
+            throws IOException {
+        writeCodeStart(writer, classes);
+        writeLinesUntil(stream, end, writer, highlighter, options);
+        writeCodeEnd(writer);
     }
 
-    private ContainerTag createBox(final Marker marker) {
+    private void writeLinesUntil(final LookaheadStream stream, final int end, final Writer writer,
+            @CheckForNull final SyntaxHighlighter highlighter, final RenderOptions options) throws IOException {
+        while (stream.hasNext() && stream.getLine() < end) {
+            String line = stream.next();
+            writeLineNumber(stream.getLine(), writer, options);
+            writeLine(line, writer, highlighter);
+            if (stream.getLine() % FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void writeMarkedRegion(final LookaheadStream stream, final MarkedRegion region, final Writer writer,
+            @CheckForNull final SyntaxHighlighter highlighter, final RenderOptions options, final String... classes)
+            throws IOException {
+        writeCodeStart(writer, classes);
+        writeMarkedLines(stream, region, writer, highlighter, options);
+        writeCodeEnd(writer);
+    }
+
+    private void writeMarkedLines(final LookaheadStream stream, final MarkedRegion region, final Writer writer,
+            @CheckForNull final SyntaxHighlighter highlighter, final RenderOptions options) throws IOException {
+        ColumnMarker columnMarker = new ColumnMarker(region.getMarkers());
+
+        while (stream.hasNext() && stream.getLine() < region.getLineEnd()) {
+            String line = stream.next();
+            int lineNumber = stream.getLine();
+            writeLineNumber(lineNumber, writer, options);
+            if (columnMarker.isMarked(lineNumber)) {
+                if (isLongLine(line)) {
+                    int[] marked = columnMarker.getMarkedRange(line, lineNumber);
+                    writeLongLine(line, lineNumber, marked[0], marked[1], columnMarker, writer);
+                    continue;
+                }
+                if (highlighter != null) {
+                    highlighter.skip(line); // column markers are not combined with server side tokens
+                }
+                columnMarker.writeLine(line, lineNumber, writer);
+                writer.write('\n');
+            }
+            else {
+                writeLine(line, writer, highlighter);
+            }
+        }
+    }
+
+    private void writeCodeStart(final Writer writer, final String... classes) throws IOException {
+        if (classes.length == 0) {
+            writer.write("<code>");
+        }
+        else {
+            writer.write("<code class=\"");
+            writer.write(String.join(" ", classes));
+            writer.write("\">");
+        }
+    }
+
+    private void writeCodeEnd(final Writer writer) throws IOException {
+        writer.write("</code>");
+        writer.flush();
+    }
+
+    private void writeLine(final CharSequence line, final Writer writer,
+            @CheckForNull final SyntaxHighlighter highlighter) throws IOException {
+        if (isLongLine(line)) {
+            writeLongLine(line.toString(), 0, 0, 0, null, writer);
+            return;
+        }
+        if (highlighter == null) {
+            HtmlEscaper.escape(line, writer);
+        }
+        else {
+            highlighter.highlight(line.toString(), writer);
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Writes the number of the specified line if the line numbers are rendered on the server. The line number is an
+     * empty link to the line: the number is shown using CSS, so it is not part of the text content of the code block
+     * and is neither tokenized by Prism nor copied to the clipboard.
+     */
+    private void writeLineNumber(final int lineNumber, final Writer writer, final RenderOptions options)
+            throws IOException {
+        if (options.isServerSideLineNumbers()) {
+            writer.write("<a class=\"source-line\" id=\"L");
+            writer.write(String.valueOf(lineNumber));
+            writer.write("\" href=\"#L");
+            writer.write(String.valueOf(lineNumber));
+            writer.write("\" data-number=\"");
+            writer.write(String.valueOf(lineNumber));
+            writer.write("\"></a>");
+        }
+    }
+
+    private boolean isLongLine(final CharSequence line) {
+        return line.length() > LONG_LINE_LENGTH;
+    }
+
+    /**
+     * Writes a window of a long line: the window contains the marked columns and {@link #LONG_LINE_CONTEXT}
+     * characters before and after them, but not more than {@link #LONG_LINE_LENGTH} characters. The omitted characters
+     * are replaced by an ellipsis. Since the window is bounded, Prism never tokenizes the whole line in the browser.
+     * Long lines are not tokenized on the server at all: the regular expressions of the grammars may backtrack
+     * catastrophically on such lines.
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void writeLongLine(final String line, final int lineNumber, final int markStart, final int markEnd,
+            @CheckForNull final ColumnMarker columnMarker, final Writer writer) throws IOException {
+        int from = Math.max(0, markStart - LONG_LINE_CONTEXT);
+        int to = Math.min(line.length(), Math.min(Math.max(markStart, markEnd) + LONG_LINE_CONTEXT,
+                from + LONG_LINE_LENGTH));
+
+        if (from > 0) {
+            writeOmission(from, writer);
+        }
+        if (columnMarker == null) {
+            HtmlEscaper.escape(line, from, to, writer);
+        }
+        else {
+            columnMarker.writeLine(line, lineNumber, from, to, writer);
+        }
+        if (to < line.length()) {
+            writeOmission(line.length() - to, writer);
+        }
+        writer.write('\n');
+    }
+
+    private void writeOmission(final int characters, final Writer writer) throws IOException {
+        writer.write("<span class=\"long-line-omission\" title=\"");
+        HtmlEscaper.escape(Messages.SourcePrinter_OmittedCharacters(characters), writer);
+        writer.write("\">\u2026</span>");
+    }
+
+    private String createInfoPanel(final Marker marker, final int index) {
+        return createBox(marker, index).withClass("analysis-warning").render();
+    }
+
+    private ContainerTag createBox(final Marker marker, final int index) {
         if (StringUtils.isEmpty(marker.getDescription())) {
             return createTitle(marker, false);
         }
         else {
-            return createTitleAndCollapsedDescription(marker, marker.getDescription());
+            return createTitleAndCollapsedDescription(marker, marker.getDescription(), index);
         }
     }
 
@@ -134,12 +897,13 @@ class SourcePrinter {
         return td;
     }
 
-    private ContainerTag createTitleAndCollapsedDescription(final Marker marker, final String description) {
+    private ContainerTag createTitleAndCollapsedDescription(final Marker marker, final String description,
+            final int index) {
         return div().with(
                 div().withClass("analysis-collapse-button").with(createTitle(marker, true)),
                 div().withClasses("collapse", "analysis-detail")
                         .with(unescape(description))
-                        .withId("analysis-description"));
+                        .withId(index == 0 ? DESCRIPTION_ID : DESCRIPTION_ID + "-" + index));
     }
 
     private UnescapedText replaceNewLine(final String message) {
@@ -150,8 +914,16 @@ class SourcePrinter {
         return new UnescapedText(SANITIZER.render(message));
     }
 
+    /**
+     * Selects the Prism language class for the specified file, based on the extension of the file name.
+     *
+     * @param fileName
+     *         the file name of the source code file
+     *
+     * @return the language class, e.g. {@code language-java}
+     */
     @SuppressWarnings({"javancss", "PMD.CyclomaticComplexity"})
-    private String selectLanguageClass(final String fileName) {
+    static String selectLanguageClass(final String fileName) {
         switch (StringUtils.substringAfterLast(fileName, ".")) {
             case "htm":
             case "html":
@@ -212,97 +984,4 @@ class SourcePrinter {
                 return "language-clike"; // Best effort for unknown extensions
         }
     }
-
-    private String asMarkedCode(final StringBuilder text, final Marker marker, final String... classes) {
-        StringBuilder marked;
-        if (marker.getLineStart() == marker.getLineEnd()) {
-            marked = COLUMN_MARKER.markColumns(text.toString(), marker.getColumnStart(), marker.getColumnEnd());
-        }
-        else {
-            marked = text;
-        }
-
-        String sanitized = SANITIZER.render(StringEscapeUtils.escapeHtml4(marked.toString()));
-        String markerReplaced = COLUMN_MARKER.replacePlaceHolderWithHtmlTag(sanitized);
-        return code().withClasses(classes).with(new UnescapedText(markerReplaced)).render();
-    }
-
-    private String asCode(final StringBuilder text, final String... classes) {
-        return code().withClasses(classes).with(unescape(StringEscapeUtils.escapeHtml4(text.toString()))).render();
-    }
-
-    /**
-     * Encloses columns between {@code start} and {@code end} with an HTML tag (see {@code openingTag} and
-     * {@code closingTag}).
-     */
-    static final class ColumnMarker {
-        private static final String OPENING_TAG = "<span class='code-mark'>";
-        private static final String CLOSING_TAG = "</span>";
-
-        /**
-         * Creates a {@link ColumnMarker} that will use {@code placeHolderText} for enclosing.
-         *
-         * @param placeHolderText
-         *         Used to construct an opening and closing text that can later be replaced with the HTML tag
-         *         {@code openingTag} {@code closingTag}. It should be a text that is unlikely to appear in any source
-         *         code.
-         */
-        ColumnMarker(final String placeHolderText) {
-            openingTagPlaceHolder = "OpEn" + placeHolderText;
-            closingTagPlaceHolder = "ClOsE" + placeHolderText;
-        }
-
-        private final String openingTagPlaceHolder;
-        private final String closingTagPlaceHolder;
-
-        /**
-         * Encloses columns between start and end with the HTML tag {@code openingTag} {@code closingTag}. This will
-         * make prism highlight the enclosed part of the line.
-         *
-         * @param text
-         *         the source code line
-         * @param start
-         *         the first column in text, that needs to be marked
-         * @param end
-         *         the last column in text, that needs to be marked
-         *
-         * @return StringBuilder containing the text with the added html tag "mark"
-         */
-        public StringBuilder markColumns(final String text, final int start, final int end) {
-            if (start < 1 || text.length() == 0 || end > text.length()) {
-                return new StringBuilder(text);
-            }
-            final int realStart = start - 1;
-            final int realEnd = (end == 0) ? text.length() - 1 : end - 1;
-
-            if (realStart > realEnd) {
-                return new StringBuilder(text);
-            }
-            final int afterMark = realEnd + 1;
-
-            final String before = text.substring(0, realStart);
-            final String toBeMarked = text.substring(realStart, afterMark);
-            final String after = text.substring(afterMark);
-
-            return new StringBuilder(before)
-                    .append(openingTagPlaceHolder)
-                    .append(toBeMarked)
-                    .append(closingTagPlaceHolder)
-                    .append(after);
-        }
-
-        /**
-         * Encloses columns between start and end with the HTML tag {@code openingTag} {@code closingTag}. This will
-         * make prism highlight the enclosed part of the line.
-         *
-         * @param text
-         *         the source code line
-         *
-         * @return String containing the text with the added html tag
-         */
-        public String replacePlaceHolderWithHtmlTag(final String text) {
-            return text.replaceAll(openingTagPlaceHolder, OPENING_TAG)
-                    .replaceAll(closingTagPlaceHolder, CLOSING_TAG);
-        }
-    }
 }
@@ -0,0 +1,378 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import io.jenkins.plugins.prism.Grammar.GrammarBuilder;
+
+/**
+ * Highlights source code on the server, so that the browser does not need to tokenize the source code with Prism.js.
+ * The highlighter writes the same {@code token} spans as Prism.js so that the selected Prism theme can be used to
+ * style the result. Since the result is deterministic for a given source code file, it can be cached.
+ *
+ * <p>
+ * A highlighter instance is used to highlight all lines of a single file in sequence: it keeps track of tokens that
+ * span several lines, e.g., block comments or text blocks. The grammars themselves are shared between all instances.
+ * </p>
+ */
+class SyntaxHighlighter {
+    private static final String COMMENT = "comment";
+    private static final String STRING = "string";
+    private static final String CHAR = "char";
+    private static final String KEYWORD = "keyword";
+    private static final String BOOLEAN = "boolean";
+    private static final String NUMBER = "number";
+    private static final String FUNCTION = "function";
+    private static final String CLASS_NAME = "class-name";
+    private static final String OPERATOR = "operator";
+    private static final String PUNCTUATION = "punctuation";
+    private static final String BUILTIN = "builtin";
+
+    private static final String BLOCK_COMMENT_START = "/\\*";
+    private static final String BLOCK_COMMENT_END = "\\*/";
+    private static final String LINE_COMMENT = "//.*";
+    private static final String DOUBLE_QUOTED_STRING = "\"(?:\\\\.|[^\"\\\\])*\"";
+    private static final String SINGLE_QUOTED_STRING = "'(?:\\\\.|[^'\\\\])*'";
+    private static final String CHARACTER = "'(?:\\\\(?:u[0-9a-fA-F]{4}|.)|[^'\\\\])'";
+    private static final String NUMBER_LITERAL
+            = "\\b(?:0[xX][\\da-fA-F_]+|0[bB][01_]+|\\d[\\d_]*(?:\\.[\\d_]*)?(?:[eE][+-]?\\d+)?)[lLfFdDuU]*\\b";
+    private static final String TRUE_FALSE = "\\b(?:true|false)\\b";
+    private static final String FUNCTION_CALL = "\\b[a-zA-Z_$][\\w$]*(?=\\s*\\()";
+    private static final String CAPITALIZED_NAME = "\\b[A-Z][\\w$]*\\b";
+    private static final String OPERATORS = "[-+*/%=!<>&|^~?:]+";
+    private static final String BRACES_AND_SEPARATORS = "[{}\\[\\]();,.]";
+    private static final String ATTRIBUTE_VALUE = "(?:\"[^\"]*\"|'[^']*'|[^\\s'\">=]+)";
+    private static final String ATTRIBUTE = "\\s+[^\\s>/=]+(?:\\s*=\\s*" + ATTRIBUTE_VALUE + ")?";
+
+    private static final String[] JAVA_SCRIPT_KEYWORDS = {"as", "async", "await", "break", "case", "catch", "class",
+            "const", "continue", "debugger", "default", "delete", "do", "else", "enum", "export", "extends",
+            "finally", "for", "from", "function", "get", "if", "implements", "import", "in", "instanceof",
+            "interface", "let", "new", "null", "of", "package", "private", "protected", "public", "return", "set",
+            "static", "super", "switch", "this", "throw", "try", "typeof", "undefined", "var", "void", "while",
+            "with", "yield"};
+
+    private static final Map<String, Grammar> GRAMMARS = new HashMap<>();
+
+    static {
+        Grammar java = createJava();
+        Grammar cpp = createCpp();
+        Grammar javaScript = createJavaScript();
+        Grammar markup = createMarkup();
+
+        GRAMMARS.put("language-java", java);
+        GRAMMARS.put("language-c", cpp);
+        GRAMMARS.put("language-cpp", cpp);
+        GRAMMARS.put("language-javascript", javaScript);
+        GRAMMARS.put("language-typescript", createTypeScript());
+        GRAMMARS.put("language-python", createPython());
+        GRAMMARS.put("language-markup", markup);
+        GRAMMARS.put("language-json", createJson());
+        GRAMMARS.put("language-yaml", createYaml());
+        GRAMMARS.put("language-groovy", createGroovy());
+        GRAMMARS.put("language-go", createGo());
+        GRAMMARS.put("language-clike", createClike());
+    }
+
+    /**
+     * Returns whether the specified language is supported by the server side highlighter.
+     *
+     * @param languageClass
+     *         the Prism language class, e.g. {@code language-java}
+     *
+     * @return {@code true} if the language is supported, {@code false} otherwise
+     */
+    static boolean isSupported(final String languageClass) {
+        return GRAMMARS.containsKey(languageClass);
+    }
+
+    /**
+     * Creates a new highlighter for the specified language.
+     *
+     * @param languageClass
+     *         the Prism language class, e.g. {@code language-java}
+     *
+     * @return the highlighter or an empty result if the language is not supported
+     */
+    static Optional<SyntaxHighlighter> create(final String languageClass) {
+        return Optional.ofNullable(GRAMMARS.get(languageClass)).map(SyntaxHighlighter::new);
+    }
+
+    private final Grammar grammar;
+    private int state = Grammar.INITIAL_STATE;
+
+    private SyntaxHighlighter(final Grammar grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Highlights the next line of the source code file and writes the escaped tokens as HTML to the specified writer.
+     *
+     * @param line
+     *         the line to highlight
+     * @param writer
+     *         the writer to write the HTML to
+     *
+     * @throws IOException
+     *         if the HTML could not be written
+     */
+    void highlight(final CharSequence line, final Writer writer) throws IOException {
+        tokenize(line, writer);
+    }
+
+    /**
+     * Skips the next line of the source code file. The line is tokenized so that multi-line tokens are detected, but
+     * nothing is written.
+     *
+     * @param line
+     *         the line to skip
+     */
+    void skip(final CharSequence line) {
+        try {
+            tokenize(line, null);
+        }
+        catch (IOException exception) {
+            throw new IllegalStateException("Skipping a line does not write anything", exception);
+        }
+    }
+
+    private void tokenize(final CharSequence line, @CheckForNull final Writer writer) throws IOException {
+        state = grammar.tokenize(line, state, writer);
+    }
+
+    private static String keywords(final String... keywords) {
+        return "\\b(?:" + String.join("|", keywords) + ")\\b";
+    }
+
+    private static Grammar createClike() {
+        return new GrammarBuilder()
+                .block(COMMENT, BLOCK_COMMENT_START, BLOCK_COMMENT_END)
+                .token(COMMENT, LINE_COMMENT)
+                .token(STRING, DOUBLE_QUOTED_STRING)
+                .token(STRING, SINGLE_QUOTED_STRING)
+                .token(KEYWORD, keywords("if", "else", "while", "do", "for", "return", "in", "instanceof",
+                        "function", "new", "try", "throw", "catch", "finally", "null", "break", "continue"))
+                .token(BOOLEAN, TRUE_FALSE)
+                .token(FUNCTION, FUNCTION_CALL)
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, OPERATORS)
+                .token(PUNCTUATION, BRACES_AND_SEPARATORS)
+                .build();
+    }
+
+    private static Grammar createJava() {
+        return new GrammarBuilder()
+                .block(COMMENT, BLOCK_COMMENT_START, BLOCK_COMMENT_END)
+                .token(COMMENT, LINE_COMMENT)
+                .block("string text-block", "\"\"\"", "\"\"\"")
+                .token(STRING, DOUBLE_QUOTED_STRING)
+                .token(CHAR, CHARACTER)
+                .token("annotation punctuation", "@[\\w$]+(?:\\.[\\w$]+)*")
+                .token(KEYWORD, keywords("abstract", "assert", "break", "case", "catch", "class", "const",
+                        "continue", "default", "do", "else", "enum", "exports", "extends", "final", "finally", "for",
+                        "goto", "if", "implements", "import", "instanceof", "interface", "module", "native", "new",
+                        "non-sealed", "null", "open", "opens", "package", "permits", "private", "protected",
+                        "provides", "public", "record", "requires", "return", "sealed", "static", "strictfp", "super",
+                        "switch", "synchronized", "this", "throw", "throws", "to", "transient", "transitive", "try",
+                        "uses", "var", "void", "volatile", "while", "with", "yield", "boolean", "byte", "char",
+                        "double", "float", "int", "long", "short"))
+                .token(BOOLEAN, TRUE_FALSE)
+                .token(FUNCTION, FUNCTION_CALL)
+                .token(CLASS_NAME, CAPITALIZED_NAME)
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, OPERATORS)
+                .token(PUNCTUATION, BRACES_AND_SEPARATORS)
+                .build();
+    }
+
+    private static Grammar createGroovy() {
+        return new GrammarBuilder()
+                .token("shebang comment", "^#!.*")
+                .block(COMMENT, BLOCK_COMMENT_START, BLOCK_COMMENT_END)
+                .token(COMMENT, LINE_COMMENT)
+                .block(STRING, "\"\"\"", "\"\"\"")
+                .block(STRING, "'''", "'''")
+                .token(STRING, DOUBLE_QUOTED_STRING)
+                .token(STRING, SINGLE_QUOTED_STRING)
+                .token("annotation punctuation", "@[\\w$]+(?:\\.[\\w$]+)*")
+                .token(KEYWORD, keywords("as", "def", "in", "abstract", "assert", "boolean", "break", "byte", "case",
+                        "catch", "char", "class", "const", "continue", "default", "do", "double", "else", "enum",
+                        "extends", "final", "finally", "float", "for", "goto", "if", "implements", "import",
+                        "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+                        "protected", "public", "return", "short", "static", "strictfp", "super", "switch",
+                        "synchronized", "this", "throw", "throws", "trait", "transient", "try", "void", "volatile",
+                        "while", "null"))
+                .token(BOOLEAN, TRUE_FALSE)
+                .token(FUNCTION, FUNCTION_CALL)
+                .token(CLASS_NAME, CAPITALIZED_NAME)
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, "[-+*/%=!<>&|^~?:]+|\\.\\.<?|\\*\\.|\\?\\.")
+                .token(PUNCTUATION, BRACES_AND_SEPARATORS)
+                .build();
+    }
+
+    private static Grammar createCpp() {
+        return new GrammarBuilder()
+                .block(COMMENT, BLOCK_COMMENT_START, BLOCK_COMMENT_END)
+                .token(COMMENT, LINE_COMMENT)
+                .token("macro property", "^\\s*#\\s*[a-z]+(?:[^\\r\\n/]|/(?![/*]))*")
+                .token(STRING, "(?:u8|[uUL])?" + DOUBLE_QUOTED_STRING)
+                .token(CHAR, "(?:u8|[uUL])?" + CHARACTER)
+                .token(KEYWORD, keywords("alignas", "alignof", "asm", "auto", "bool", "break", "case", "catch",
+                        "char", "char8_t", "char16_t", "char32_t", "class", "concept", "const", "consteval",
+                        "constexpr", "constinit", "const_cast", "continue", "co_await", "co_return", "co_yield",
+                        "decltype", "default", "delete", "do", "double", "dynamic_cast", "else", "enum", "explicit",
+                        "export", "extern", "float", "for", "friend", "goto", "if", "inline", "int", "long",
+                        "mutable", "namespace", "new", "noexcept", "nullptr", "operator", "private", "protected",
+                        "public", "register", "reinterpret_cast", "requires", "restrict", "return", "short", "signed",
+                        "sizeof", "static", "static_assert", "static_cast", "struct", "switch", "template", "this",
+                        "thread_local", "throw", "try", "typedef", "typeid", "typename", "union", "unsigned",
+                        "using", "virtual", "void", "volatile", "wchar_t", "while", "NULL"))
+                .token(BOOLEAN, TRUE_FALSE)
+                .token(FUNCTION, FUNCTION_CALL)
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, "->|::|" + OPERATORS)
+                .token(PUNCTUATION, BRACES_AND_SEPARATORS)
+                .build();
+    }
+
+    private static GrammarBuilder createJavaScriptRules() {
+        return new GrammarBuilder()
+                .block(COMMENT, BLOCK_COMMENT_START, BLOCK_COMMENT_END)
+                .token(COMMENT, LINE_COMMENT)
+                .block("template-string string", "`", "(?<!\\\\)`")
+                .token(STRING, DOUBLE_QUOTED_STRING)
+                .token(STRING, SINGLE_QUOTED_STRING);
+    }
+
+    private static Grammar createJavaScript() {
+        return createJavaScriptRules()
+                .token(KEYWORD, keywords(JAVA_SCRIPT_KEYWORDS))
+                .token(BOOLEAN, TRUE_FALSE)
+                .token(FUNCTION, FUNCTION_CALL)
+                .token(CLASS_NAME, CAPITALIZED_NAME)
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, "=>|" + OPERATORS)
+                .token(PUNCTUATION, BRACES_AND_SEPARATORS)
+                .build();
+    }
+
+    private static Grammar createTypeScript() {
+        return createJavaScriptRules()
+                .token("decorator annotation", "@[\\w$]+")
+                .token(KEYWORD, keywords(JAVA_SCRIPT_KEYWORDS) + "|" + keywords("abstract", "declare", "is",
+                        "keyof", "namespace", "readonly", "require", "satisfies", "type"))
+                .token(BUILTIN, keywords("string", "Function", "any", "number", "boolean", "Array", "symbol",
+                        "console", "Promise", "unknown", "never", "object", "bigint"))
+                .token(BOOLEAN, TRUE_FALSE)
+                .token(FUNCTION, FUNCTION_CALL)
+                .token(CLASS_NAME, CAPITALIZED_NAME)
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, "=>|" + OPERATORS)
+                .token(PUNCTUATION, BRACES_AND_SEPARATORS)
+                .build();
+    }
+
+    private static Grammar createPython() {
+        return new GrammarBuilder()
+                .token(COMMENT, "#.*")
+                .block("string triple-quoted-string", "(?i)[rbuf]{0,2}\"\"\"", "\"\"\"")
+                .block("string triple-quoted-string", "(?i)[rbuf]{0,2}'''", "'''")
+                .token(STRING, "(?i)[rbuf]{0,2}" + DOUBLE_QUOTED_STRING)
+                .token(STRING, "(?i)[rbuf]{0,2}" + SINGLE_QUOTED_STRING)
+                .token("decorator annotation punctuation", "^\\s*@\\w+(?:\\.\\w+)*")
+                .token(CLASS_NAME, "(?<=\\bclass\\s)\\w+")
+                .token(KEYWORD, keywords("_(?=\\s*:)", "and", "as", "assert", "async", "await", "break", "case",
+                        "class", "continue", "def", "del", "elif", "else", "except", "exec", "finally", "for", "from",
+                        "global", "if", "import", "in", "is", "lambda", "match", "nonlocal", "not", "or", "pass",
+                        "print", "raise", "return", "try", "while", "with", "yield"))
+                .token(BUILTIN, keywords("__import__", "abs", "all", "any", "bin", "bool", "bytearray", "bytes",
+                        "callable", "chr", "classmethod", "compile", "complex", "delattr", "dict", "dir", "divmod",
+                        "enumerate", "eval", "filter", "float", "format", "frozenset", "getattr", "globals",
+                        "hasattr", "hash", "help", "hex", "id", "input", "int", "isinstance", "issubclass", "iter",
+                        "len", "list", "locals", "map", "max", "min", "next", "object", "oct", "open", "ord", "pow",
+                        "property", "range", "repr", "reversed", "round", "set", "setattr", "slice", "sorted",
+                        "staticmethod", "str", "sum", "super", "tuple", "type", "vars", "zip"))
+                .token(BOOLEAN, "\\b(?:False|None|True)\\b")
+                .token(FUNCTION, "\\b[a-zA-Z_]\\w*(?=\\s*\\()")
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, "[-+%=]=?|!=|:=|\\*\\*?=?|//?=?|<[<=>]?|>[=>]?|[&|^~]")
+                .token(PUNCTUATION, "[{}\\[\\];(),.:]")
+                .build();
+    }
+
+    private static Grammar createMarkup() {
+        Grammar tag = new GrammarBuilder()
+                .token("tag", "^</?[^\\s>/]+")
+                .token("attr-value", "=\\s*" + ATTRIBUTE_VALUE)
+                .token(PUNCTUATION, "/?>")
+                .token("attr-name", "[^\\s>/=]+")
+                .build();
+        return new GrammarBuilder()
+                .block(COMMENT, "<!--", "-->")
+                .block("cdata", "<!\\[CDATA\\[", "\\]\\]>")
+                .token("prolog", "<\\?.+?\\?>")
+                .token("doctype", "(?i)<!DOCTYPE[^>]*>?")
+                .token("tag", "</?(?!\\d)[^\\s>/=$<%]+(?:" + ATTRIBUTE + ")*\\s*/?>?", tag)
+                .token("entity named-entity", "(?i)&[\\da-z]{1,8};|&#x?[\\da-f]{1,8};")
+                .build();
+    }
+
+    private static Grammar createJson() {
+        return new GrammarBuilder()
+                .token("property", DOUBLE_QUOTED_STRING + "(?=\\s*:)")
+                .token(STRING, DOUBLE_QUOTED_STRING)
+                .block(COMMENT, BLOCK_COMMENT_START, BLOCK_COMMENT_END)
+                .token(COMMENT, LINE_COMMENT)
+                .token(NUMBER, "-?\\b\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?\\b")
+                .token(PUNCTUATION, "[{}\\[\\],]")
+                .token(OPERATOR, ":")
+                .token(BOOLEAN, TRUE_FALSE)
+                .token("null keyword", "\\bnull\\b")
+                .build();
+    }
+
+    private static Grammar createYaml() {
+        return new GrammarBuilder()
+                .token(COMMENT, "(?<![^\\s])#.*")
+                .token("directive important", "^%.+")
+                .token("key atrule", "(?:" + DOUBLE_QUOTED_STRING + "|" + SINGLE_QUOTED_STRING
+                        + "|[^\\s\\[\\]{},#'\"&*!|>%@`-][^\\r\\n:#]*?|-(?=\\S)[^\\r\\n:#]*?)(?=\\s*:(?:\\s|$))")
+                .token(STRING, DOUBLE_QUOTED_STRING)
+                .token(STRING, SINGLE_QUOTED_STRING)
+                .token("important", "[&*][\\w-]+")
+                .token("tag", "![^\\s]*")
+                .token(BOOLEAN, "(?i)(?<=[\\s:\\[,-])(?:true|false|yes|no|on|off)(?=\\s*(?:$|[,\\]}#]))")
+                .token("null important", "(?i)(?<=[\\s:\\[,-])(?:null|~)(?=\\s*(?:$|[,\\]}#]))")
+                .token(NUMBER, "(?<=[\\s:\\[,-])[+-]?(?:0x[\\da-f]+|0o[0-7]+|(?:\\d[\\d_]*(?:\\.\\d*)?|\\.\\d+)"
+                        + "(?:e[+-]?\\d+)?|\\.inf|\\.nan)(?=\\s*(?:$|[,\\]}#]))")
+                .token(PUNCTUATION, "---|\\.\\.\\.|[:\\[\\]{}\\-,|>?]")
+                .build();
+    }
+
+    private static Grammar createGo() {
+        return new GrammarBuilder()
+                .block(COMMENT, BLOCK_COMMENT_START, BLOCK_COMMENT_END)
+                .token(COMMENT, LINE_COMMENT)
+                .block(STRING, "`", "`")
+                .token(STRING, DOUBLE_QUOTED_STRING)
+                .token(CHAR, "'(?:\\\\.|[^'\\\\])+'")
+                .token(KEYWORD, keywords("break", "case", "chan", "const", "continue", "default", "defer", "else",
+                        "fallthrough", "for", "func", "go(?:to)?", "if", "import", "interface", "map", "package",
+                        "range", "return", "select", "struct", "switch", "type", "var"))
+                .token(BOOLEAN, "\\b(?:_|false|iota|nil|true)\\b")
+                .token(BUILTIN, keywords("append", "bool", "byte", "cap", "close", "complex", "complex64",
+                        "complex128", "copy", "delete", "error", "float32", "float64", "imag", "int", "int8", "int16",
+                        "int32", "int64", "len", "make", "new", "panic", "print", "println", "real", "recover", "rune",
+                        "string", "uint", "uint8", "uint16", "uint32", "uint64", "uintptr", "any"))
+                .token(FUNCTION, FUNCTION_CALL)
+                .token(NUMBER, NUMBER_LITERAL)
+                .token(OPERATOR, ":=|\\.\\.\\.|<-|" + OPERATORS)
+                .token(PUNCTUATION, BRACES_AND_SEPARATORS)
+                .build();
+    }
+}
@@ -0,0 +1,271 @@
+package io.jenkins.plugins.prism;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the lines of a stored source code file through a window of bytes. In contrast to a
+ * {@link java.io.BufferedReader}, no {@link String} is created for a line: each line is decoded into a buffer that is
+ * reused for all lines, and the returned {@link CharBuffer} is a view of this buffer. So a line is valid only until
+ * the next line is read. Lines that are skipped are not decoded at all, only their terminators are searched in the
+ * window. A {@link LineIndex} can be used to seek directly to a given line.
+ *
+ * <p>
+ * The window is a buffer that is reused for the whole file: it is filled using positional reads of the
+ * {@link FileChannel}, starting at the byte that is read next. The file is not mapped into memory, since a mapping is
+ * released only when it is garbage collected. On Windows, such a mapping would prevent deleting the file (e.g., when
+ * the build is deleted) long after the reader has been closed.
+ * </p>
+ *
+ * <p>
+ * Lines that are longer than the maximum line length are truncated: the remaining bytes of such a line are skipped
+ * without decoding them. Malformed input is replaced with the replacement character of the character set. Like the
+ * {@link LineIndex}, the reader can only be used for character sets that encode the line terminators as the single
+ * bytes of US-ASCII, see {@link LineIndex#isSupported(Charset)}.
+ * </p>
+ */
+class WindowedLineReader implements Iterator<CharSequence>, Closeable {
+    private static final int WINDOW_SIZE = 64 * 1024;
+    private static final int MINIMUM_WINDOW_SIZE = 16; // a window must hold the bytes of several characters
+    private static final int INITIAL_LINE_CAPACITY = 256;
+    private static final int UNLIMITED = 0;
+
+    private final FileChannel channel;
+    private final long size;
+    private final ByteBuffer window;
+    private final ByteBuffer view;
+    private final CharsetDecoder decoder;
+    private final int maximumLineLength;
+
+    private long windowStart;
+    private int windowLength;
+    private CharBuffer line;
+    private long position;
+    private int lineNumber;
+
+    /**
+     * Opens the specified file.
+     *
+     * @param file
+     *         the source code file
+     * @param charset
+     *         the character set of the source code file
+     * @param maximumLineLength
+     *         the maximum number of characters of a line, 0 disables this limit
+     *
+     * @throws IOException
+     *         if the file could not be opened
+     */
+    WindowedLineReader(final Path file, final Charset charset, final int maximumLineLength) throws IOException {
+        this(file, charset, maximumLineLength, WINDOW_SIZE);
+    }
+
+    /**
+     * Opens the specified file with a window of the specified size.
+     *
+     * @param file
+     *         the source code file
+     * @param charset
+     *         the character set of the source code file
+     * @param maximumLineLength
+     *         the maximum number of characters of a line, 0 disables this limit
+     * @param windowSize
+     *         the number of bytes of the window
+     *
+     * @throws IOException
+     *         if the file could not be opened
+     */
+    WindowedLineReader(final Path file, final Charset charset, final int maximumLineLength, final int windowSize)
+            throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+        }
+        catch (IOException exception) {
+            channel.close();
+            throw exception;
+        }
+        window = ByteBuffer.allocate(Math.max(windowSize, MINIMUM_WINDOW_SIZE));
+        view = window.duplicate();
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.maximumLineLength = maximumLineLength;
+        line = CharBuffer.allocate(maximumLineLength == UNLIMITED
+                ? INITIAL_LINE_CAPACITY : Math.min(maximumLineLength, INITIAL_LINE_CAPACITY));
+    }
+
+    /**
+     * Positions the reader at the specified line, so that the next invocation of {@link #next()} returns this line.
+     *
+     * @param index
+     *         the index of the lines of the file
+     * @param line
+     *         the line number (lines start at 1), must not be greater than the number of lines plus one
+     */
+    void seek(final LineIndex index, final int line) {
+        position = index.getOffset(line);
+        lineNumber = line - 1;
+    }
+
+    /**
+     * Returns the number of the line that has been read (or skipped) most recently.
+     *
+     * @return the line number (lines start at 1), or 0 if no line has been read yet
+     */
+    int getLine() {
+        return lineNumber;
+    }
+
+    /**
+     * Skips the specified number of lines. The skipped lines are not decoded.
+     *
+     * @param count
+     *         the number of lines to skip
+     */
+    void skipLines(final int count) {
+        for (int skipped = 0; skipped < count && hasNext(); skipped++) {
+            position = skipTerminator(findEndOfLine(position));
+            lineNumber++;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < size;
+    }
+
+    /**
+     * Returns the next line. The returned characters are a view of a buffer that is reused for the following lines.
+     *
+     * @return the next line (without the line terminator)
+     * @throws NoSuchElementException
+     *         if there are no more lines
+     * @throws UncheckedIOException
+     *         if the file could not be read
+     */
+    @Override
+    public CharSequence next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more lines");
+        }
+        long end = findEndOfLine(position);
+        decode(position, end);
+        position = skipTerminator(end);
+        lineNumber++;
+        return line;
+    }
+
+    private long findEndOfLine(final long start) {
+        long end = start;
+        while (end < size) {
+            byte character = getByte(end);
+            if (character == '\n' || character == '\r') {
+                return end;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    private long skipTerminator(final long end) {
+        if (end < size && getByte(end) == '\r' && end + 1 < size && getByte(end + 1) == '\n') {
+            return end + 2;
+        }
+        return Math.min(end + 1, size);
+    }
+
+    private byte getByte(final long offset) {
+        if (offset < windowStart || offset >= windowStart + windowLength) {
+            fill(offset);
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    /**
+     * Fills the window with the bytes of the file that start at the specified offset.
+     */
+    private void fill(final long offset) {
+        try {
+            window.clear();
+            int read = 0;
+            while (window.hasRemaining() && read >= 0) {
+                read = channel.read(window, offset + window.position());
+            }
+            windowStart = offset;
+            windowLength = window.position();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Decodes the bytes of the specified range into the line buffer. The range may span several windows: the bytes of
+     * a character that is split by the end of a window are decoded after the window has been moved to this character.
+     */
+    private void decode(final long start, final long end) {
+        line.clear();
+        if (start == end) {
+            line.flip();
+            return; // an empty line
+        }
+        decoder.reset();
+        long offset = start;
+        CoderResult result = CoderResult.UNDERFLOW;
+        while (offset < end) {
+            if (offset < windowStart || offset >= windowStart + windowLength) {
+                fill(offset);
+            }
+            boolean isLast = windowStart + windowLength >= end;
+            view.limit((int) (Math.min(end, windowStart + windowLength) - windowStart));
+            view.position((int) (offset - windowStart));
+            result = decoder.decode(view, line, isLast);
+            while (result.isOverflow() && canGrow()) {
+                grow();
+                result = decoder.decode(view, line, isLast);
+            }
+            if (result.isOverflow() || isLast) {
+                break;
+            }
+            offset = windowStart + view.position();
+            fill(offset); // continues with the bytes of a split character (if any)
+        }
+        if (result.isUnderflow()) {
+            decoder.flush(line);
+        } // otherwise the line is truncated, the remaining bytes are not decoded
+        line.flip();
+    }
+
+    private boolean canGrow() {
+        return maximumLineLength == UNLIMITED || line.capacity() < maximumLineLength;
+    }
+
+    private void grow() {
+        int capacity = 2 * line.capacity();
+        if (maximumLineLength != UNLIMITED) {
+            capacity = Math.min(capacity, maximumLineLength);
+        }
+        CharBuffer larger = CharBuffer.allocate(capacity);
+        line.flip();
+        larger.put(line);
+        line = larger;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
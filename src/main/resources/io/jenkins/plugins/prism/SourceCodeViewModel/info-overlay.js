@@ -0,0 +1,59 @@
+/* global Prism */
+/**
+ * Positions the info panels of a source code file that has been rendered as a single code block. Each panel is shown
+ * as an overlay directly below the first line of its marked region. The panels are positioned again whenever the
+ * size of the window changes or additional lines have been loaded.
+ */
+(function () {
+  function getLineHeight(code) {
+    const lineHeight = parseFloat(getComputedStyle(code).lineHeight);
+    if (!isNaN(lineHeight)) {
+      return lineHeight;
+    }
+    return parseFloat(getComputedStyle(code).fontSize) * 1.5;
+  }
+
+  function positionOverlays(block) {
+    const pre = block.querySelector('pre');
+    const code = pre && pre.querySelector('code');
+    if (!code) {
+      return;
+    }
+    const start = parseInt(pre.dataset.start || '1', 10);
+    const lineHeight = getLineHeight(code);
+    const top = pre.offsetTop + code.offsetTop + parseFloat(getComputedStyle(code).paddingTop || '0');
+    block.querySelectorAll('.analysis-overlay').forEach(overlay => {
+      const line = parseInt(overlay.dataset.line, 10);
+      overlay.style.top = `${top + (line - start + 1) * lineHeight}px`;
+    });
+  }
+
+  function highlightLines(pre) {
+    if (window.Prism && Prism.plugins.lineHighlight) {
+      Prism.plugins.lineHighlight.highlightLines(pre)();
+    }
+  }
+
+  function positionAll() {
+    document.querySelectorAll('.source-code-block').forEach(positionOverlays);
+  }
+
+  function init() {
+    document.querySelectorAll('.source-code-block').forEach(block => {
+      block.addEventListener('source-lines-loaded', () => {
+        highlightLines(block.querySelector('pre'));
+        positionOverlays(block);
+      });
+    });
+    window.addEventListener('resize', positionAll);
+    window.addEventListener('load', positionAll);
+    positionAll();
+  }
+
+  if (document.readyState === 'loading') {
+    document.addEventListener('DOMContentLoaded', init);
+  }
+  else {
+    init();
+  }
+})();
@@ -0,0 +1,76 @@
+/* global Prism */
+/**
+ * Loads additional lines above or below the visible window of source code lines.
+ */
+(function () {
+  const path = window.location.pathname;
+  const linesUrl = (path.endsWith('/') ? path : path + '/') + 'lines';
+
+  function createCode(html) {
+    const template = document.createElement('template');
+    template.innerHTML = html.trim();
+    return template.content.firstElementChild;
+  }
+
+  function highlight(code) {
+    if (window.prismViewer) {
+      window.prismViewer.highlight(code);
+    }
+    else if (window.Prism) {
+      Prism.highlightElement(code);
+    }
+  }
+
+  function loadMore(container) {
+    const direction = container.dataset.direction;
+    const sibling = direction === 'above' ? container.nextElementSibling : container.previousElementSibling;
+    const pre = sibling.nodeName.toLowerCase() === 'pre' ? sibling : sibling.querySelector('pre');
+    const line = parseInt(container.dataset.line, 10);
+    const count = parseInt(container.dataset.count, 10);
+    const from = direction === 'above' ? Math.max(1, line - count + 1) : line;
+    const to = direction === 'above' ? line : line + count - 1;
+
+    fetch(`${linesUrl}?from=${from}&to=${to}`)
+      .then(response => {
+        if (!response.ok) {
+          throw new Error(response.statusText);
+        }
+        return response.text();
+      })
+      .then(html => {
+        const code = createCode(html);
+        if (direction === 'above') {
+          pre.insertBefore(code, pre.firstElementChild);
+          pre.dataset.start = from;
+          if (pre.dataset.lineOffset) {
+            pre.dataset.lineOffset = from - 1;
+          }
+          pre.style.counterReset = `linenumber ${from - 1}`;
+          highlight(code);
+          container.dataset.line = from - 1;
+          container.hidden = from <= 1;
+        }
+        else {
+          pre.appendChild(code);
+          highlight(code);
+          container.dataset.line = parseInt(code.dataset.to, 10) + 1;
+          container.hidden = code.dataset.more !== 'true';
+        }
+        pre.dispatchEvent(new CustomEvent('source-lines-loaded', {bubbles: true}));
+      })
+      .catch(error => console.error('Loading source code lines failed', error));
+  }
+
+  function init() {
+    document.querySelectorAll('.source-load-more').forEach(container => {
+      container.querySelector('button').addEventListener('click', () => loadMore(container));
+    });
+  }
+
+  if (document.readyState === 'loading') {
+    document.addEventListener('DOMContentLoaded', init);
+  }
+  else {
+    init();
+  }
+})();
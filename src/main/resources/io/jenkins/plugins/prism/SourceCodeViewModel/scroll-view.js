@@ -10,9 +10,9 @@ jQuery3.fn.scrollView = function () {
   });
 };
 jQuery3(document).ready(function () {
-  jQuery3('.highlight').scrollView();
+  jQuery3('.highlight, .analysis-overlay').first().scrollView();
 });
 jQuery3('.analysis-collapse-button').click(function () {
-  jQuery3('#analysis-description').collapse('toggle');
-  jQuery3('.analysis-collapse-button').toggleClass('open');
+  jQuery3(this).next('.analysis-detail').collapse('toggle');
+  jQuery3(this).toggleClass('open');
 });
@@ -0,0 +1,117 @@
+/* global Prism */
+/**
+ * Shows a large source code file in a virtual scrolling viewer. The server renders only a window of lines around the
+ * marker, the total number of lines is provided by the element 'source-virtual-lines'. The viewer reserves the space
+ * for all lines and fetches the visible lines (and some lines above and below) while the user scrolls. Only these
+ * lines are kept in the DOM.
+ */
+(function () {
+  const path = window.location.pathname;
+  const linesUrl = (path.endsWith('/') ? path : path + '/') + 'lines';
+  const bufferLines = 200;
+  const maximumLines = 5000; // see SourceCodeViewModel.MAX_LINES_PER_REQUEST
+
+  function createCode(html) {
+    const template = document.createElement('template');
+    template.innerHTML = html.trim();
+    return template.content.firstElementChild;
+  }
+
+  function highlight(code) {
+    if (window.prismViewer) {
+      window.prismViewer.highlight(code);
+    }
+    else if (window.Prism) {
+      Prism.highlightElement(code);
+    }
+  }
+
+  function countLines(text) {
+    return text.split('\n').length - (text.endsWith('\n') ? 1 : 0);
+  }
+
+  function initViewer(viewer) {
+    const block = viewer.querySelector('.source-code-block');
+    const pre = block.querySelector('pre');
+    const totalLines = parseInt(viewer.querySelector('.source-virtual-lines').dataset.totalLines, 10);
+    const lines = countLines(pre.textContent);
+    const lineHeight = parseFloat(getComputedStyle(pre.querySelector('code')).lineHeight)
+        || pre.getBoundingClientRect().height / Math.max(1, lines);
+    let from = parseInt(pre.dataset.start || '1', 10);
+    let to = from + lines - 1;
+    let request = null;
+
+    function place() {
+      block.style.height = `${totalLines * lineHeight}px`;
+      pre.style.top = `${(from - 1) * lineHeight}px`;
+    }
+
+    function show(code) {
+      from = parseInt(code.dataset.from, 10);
+      to = parseInt(code.dataset.to, 10);
+      pre.replaceChildren(code);
+      pre.dataset.start = from;
+      pre.dataset.lineOffset = from - 1;
+      pre.style.counterReset = `linenumber ${from - 1}`;
+      place();
+      highlight(code);
+      pre.dispatchEvent(new CustomEvent('source-lines-loaded', {bubbles: true}));
+    }
+
+    function update() {
+      const first = Math.floor(viewer.scrollTop / lineHeight) + 1;
+      const last = Math.min(totalLines, first + Math.ceil(viewer.clientHeight / lineHeight));
+      if (first >= from && last <= to) {
+        return;
+      }
+      if (request) {
+        request.abort();
+      }
+      request = new AbortController();
+      const start = Math.max(1, first - bufferLines);
+      const end = Math.min(totalLines, last + bufferLines, start + maximumLines - 1);
+      fetch(`${linesUrl}?from=${start}&to=${end}`, {signal: request.signal})
+        .then(response => {
+          if (!response.ok) {
+            throw new Error(response.statusText);
+          }
+          return response.text();
+        })
+        .then(html => {
+          request = null;
+          show(createCode(html));
+        })
+        .catch(error => {
+          if (error.name !== 'AbortError') {
+            console.error('Loading source code lines failed', error);
+          }
+        });
+    }
+
+    let scheduled = false;
+    viewer.addEventListener('scroll', () => {
+      if (!scheduled) {
+        scheduled = true;
+        requestAnimationFrame(() => {
+          scheduled = false;
+          update();
+        });
+      }
+    });
+
+    place();
+    const marked = parseInt(pre.dataset.line || String(from), 10);
+    viewer.scrollTop = Math.max(0, (marked - 1) * lineHeight - viewer.clientHeight / 2);
+  }
+
+  function init() {
+    document.querySelectorAll('.source-virtual').forEach(initViewer);
+  }
+
+  if (document.readyState === 'loading') {
+    document.addEventListener('DOMContentLoaded', init);
+  }
+  else {
+    init();
+  }
+})();
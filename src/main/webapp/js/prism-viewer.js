@@ -0,0 +1,373 @@
+/* global Prism, crumb */
+/**
+ * Highlights the source code blocks of the source code view. Blocks that have already been tokenized on the server
+ * (marked with the class 'server-highlighted', either on the code block or on the enclosing 'pre') are not tokenized
+ * again: only the Prism plugins (line numbers, line highlight, match braces) are applied. All other blocks are
+ * highlighted by Prism.js.
+ *
+ * If the script element defines a worker URL and the scripts that the worker should load, then Prism.js highlights the
+ * blocks in a web worker. A single worker is used for all blocks: the blocks are queued and sent to the worker one
+ * after another, each job is identified by the ID of its block. The worker is terminated as soon as the queue is
+ * empty. The escaped source code is visible (and the page is scrollable) immediately, the highlighted code replaces
+ * the plain text as soon as the worker has finished the block.
+ *
+ * Blocks that contain markup that must be preserved by the keep-markup plugin (e.g., marked columns, but not the line
+ * numbers that have been rendered on the server), or all blocks if no worker can be used, are highlighted
+ * progressively in the main thread: the blocks are split into chunks of lines that are highlighted one after another
+ * while the browser is idle. The chunks around the marked lines are highlighted first. The size of the chunks is
+ * adapted so that each task takes less than 50 ms.
+ *
+ * If the script element defines a timeout (in seconds), then the highlighting runs under this time budget: a worker
+ * that does not finish a block in time is terminated, and if the chunks of a block in the main thread take longer
+ * (measured from the start of the first chunk of the block), then the remaining chunks are not highlighted anymore.
+ * In both cases the escaped source code is kept, a notice is shown above the source code, and the timeout is reported
+ * to the server using a POST request to the timeout URL.
+ */
+(function () {
+  const serverHighlighted = 'server-highlighted';
+  const lineNumber = 'source-line';
+  const chunkBudget = 40; // ms, below the 50 ms threshold of long tasks
+  const minimumLines = 20;
+  const maximumLines = 5000;
+  const contextLines = 10;
+
+  const script = document.currentScript || {dataset: {}};
+  const workerUrl = createWorkerUrl(script);
+  const timeout = (parseInt(script.dataset.timeout, 10) || 0) * 1000;
+  const queue = [];
+  const jobs = [];
+  let worker = null;
+  let currentJob = null;
+  let jobCount = 0;
+  let linesPerChunk = 200;
+  let scheduled = false;
+  let timedOut = false;
+
+  function createWorkerUrl(script) {
+    if (!window.Worker || !window.Prism) {
+      return null;
+    }
+    const url = script.dataset.worker;
+    const scripts = (script.dataset.scripts || '').split(' ').filter(Boolean);
+    if (!url || scripts.length === 0) {
+      return null;
+    }
+    return url + '?' + scripts.map(scriptUrl => 'script=' + encodeURIComponent(scriptUrl)).join('&');
+  }
+
+  function showTimeoutNotice() {
+    const text = script.dataset.timeoutNotice;
+    const first = document.querySelector('.source-load-more, .source-virtual, .source-code-block, pre');
+    if (!text || !first) {
+      return;
+    }
+    const notice = document.createElement('div');
+    notice.className = 'source-notice alert alert-info';
+    notice.setAttribute('role', 'status');
+    notice.textContent = text;
+    first.parentNode.insertBefore(notice, first);
+  }
+
+  function reportTimeout() {
+    const url = script.dataset.timeoutUrl;
+    if (!url) {
+      return;
+    }
+    const path = window.location.pathname;
+    const base = new URL(path.endsWith('/') ? path : path + '/', window.location.href);
+    fetch(new URL(url, base), {
+      method: 'POST',
+      headers: window.crumb ? crumb.wrap({}) : {}
+    }).catch(error => console.error('Reporting the highlighting timeout failed', error));
+  }
+
+  function abortHighlighting() {
+    if (timedOut) {
+      return;
+    }
+    timedOut = true;
+    queue.length = 0;
+    jobs.length = 0;
+    showTimeoutNotice();
+    reportTimeout();
+  }
+
+  function hasOnlyLineNumbers(code) {
+    return Array.from(code.children).every(child => child.classList.contains(lineNumber));
+  }
+
+  /**
+   * Inserts the line numbers that have been rendered on the server (see 'SourcePrinter') at the start of each line of
+   * the highlighted code block. The positions are collected first and the line numbers are inserted from the last to
+   * the first line, so that splitting a text node does not change the positions that have not been processed yet.
+   */
+  function insertLineNumbers(code, lineNumbers) {
+    if (lineNumbers.length === 0) {
+      return;
+    }
+    const positions = [];
+    const walker = document.createTreeWalker(code, NodeFilter.SHOW_TEXT);
+    for (let node = walker.nextNode(); node; node = walker.nextNode()) {
+      for (let index = node.data.indexOf('\n'); index >= 0; index = node.data.indexOf('\n', index + 1)) {
+        positions.push({node: node, offset: index + 1});
+      }
+    }
+    for (let line = Math.min(lineNumbers.length - 1, positions.length); line > 0; line--) {
+      const range = document.createRange();
+      range.setStart(positions[line - 1].node, positions[line - 1].offset);
+      range.insertNode(lineNumbers[line]);
+    }
+    code.insertBefore(lineNumbers[0], code.firstChild);
+  }
+
+  /**
+   * Highlights the specified code block in the web worker. The block is appended to the queue of the worker, so the
+   * blocks are highlighted one after another in the order of this method's invocations.
+   */
+  function highlightInWorker(code) {
+    const language = setLanguage(code);
+    jobs.push({
+      id: ++jobCount,
+      lineNumbers: Array.from(code.children),
+      env: {
+        element: code,
+        language: language,
+        grammar: Prism.languages[language],
+        code: code.textContent
+      }
+    });
+    postNextJob();
+  }
+
+  function terminateWorker() {
+    if (worker) {
+      worker.terminate();
+      worker = null;
+    }
+  }
+
+  function createWorker() {
+    const created = new Worker(workerUrl);
+    created.onmessage = event => finishJob(event.data.id, event.data.html);
+    created.onerror = event => {
+      event.preventDefault();
+      finishJob(currentJob && currentJob.id, null); // keep the escaped source code of the block
+    };
+    return created;
+  }
+
+  /**
+   * Sends the next block of the queue to the worker, unless the worker is still busy. If the queue is empty, then the
+   * worker is terminated, a new worker is created for blocks that are added later on. The worker is also terminated
+   * if it does not finish the block within the time budget, then the escaped source code is kept.
+   */
+  function postNextJob() {
+    if (currentJob || timedOut) {
+      return;
+    }
+    if (jobs.length === 0) {
+      terminateWorker();
+      return;
+    }
+    currentJob = jobs.shift();
+    worker = worker || createWorker();
+    if (timeout > 0) {
+      currentJob.timer = setTimeout(() => {
+        terminateWorker();
+        abortHighlighting();
+      }, timeout);
+    }
+    worker.postMessage({id: currentJob.id, language: currentJob.env.language, code: currentJob.env.code});
+  }
+
+  /**
+   * Inserts the highlighted code of the finished block and sends the next block to the worker. Line numbers that have
+   * been rendered on the server are inserted again after the highlighted code has been received.
+   */
+  function finishJob(id, html) {
+    const job = currentJob;
+    if (!job || job.id !== id) {
+      return;
+    }
+    clearTimeout(job.timer);
+    currentJob = null;
+    const env = job.env;
+    if (html !== null && !timedOut && env.element.isConnected) {
+      env.highlightedCode = html;
+      Prism.hooks.run('before-insert', env);
+      env.element.innerHTML = env.highlightedCode;
+      insertLineNumbers(env.element, job.lineNumbers);
+      Prism.hooks.run('after-highlight', env);
+      Prism.hooks.run('complete', env);
+    }
+    postNextJob();
+  }
+
+  /**
+   * Moves the first lines of the specified code block into a new code block that is inserted before the block.
+   *
+   * @param code the code block to split
+   * @param lines the number of lines to move
+   * @return the new code block, or null if the block does not contain more lines
+   */
+  function splitLines(code, lines) {
+    const walker = document.createTreeWalker(code, NodeFilter.SHOW_TEXT);
+    let count = 0;
+    for (let node = walker.nextNode(); node; node = walker.nextNode()) {
+      let index = node.data.indexOf('\n');
+      while (index >= 0) {
+        count++;
+        if (count === lines) {
+          if (index + 1 === node.data.length && !walker.nextNode()) {
+            return null;
+          }
+          const range = document.createRange();
+          range.setStart(code, 0);
+          range.setEnd(node, index + 1);
+          const chunk = code.cloneNode(false);
+          chunk.appendChild(range.extractContents());
+          code.parentNode.insertBefore(chunk, code);
+          return chunk;
+        }
+        index = node.data.indexOf('\n', index + 1);
+      }
+    }
+    return null;
+  }
+
+  function getFirstMarkedLine(code) {
+    const pre = code.parentElement;
+    if (!pre || !pre.dataset.line || pre.querySelectorAll('code').length > 1) {
+      return 0;
+    }
+    const start = parseInt(pre.dataset.start || '1', 10);
+    return parseInt(pre.dataset.line, 10) - start + 1;
+  }
+
+  /**
+   * Highlights the next chunk of the first block of the queue. The time budget applies to the whole block: the start
+   * time of the first chunk is stored in the queue entry, and the highlighting is aborted as soon as the time since
+   * then exceeds the budget.
+   */
+  function highlightChunk() {
+    const entry = queue.shift();
+    if (!entry || !entry.code.isConnected || timedOut) {
+      return;
+    }
+    const chunk = splitLines(entry.code, linesPerChunk);
+    if (chunk) {
+      queue.unshift(entry);
+    }
+
+    const start = performance.now();
+    if (entry.block.start === null) {
+      entry.block.start = start;
+    }
+    Prism.highlightElement(chunk || entry.code);
+    const end = performance.now();
+    const duration = end - start;
+    if (timeout > 0 && end - entry.block.start > timeout) {
+      abortHighlighting(); // a chunk cannot be interrupted, but the remaining chunks are not highlighted
+    }
+    else if (duration > chunkBudget) {
+      linesPerChunk = Math.max(minimumLines, Math.floor(linesPerChunk / 2));
+    }
+    else if (duration < chunkBudget / 4) {
+      linesPerChunk = Math.min(maximumLines, linesPerChunk * 2);
+    }
+  }
+
+  function highlightWhileIdle(deadline) {
+    scheduled = false;
+    do {
+      highlightChunk();
+    }
+    while (queue.length > 0 && deadline.timeRemaining() > chunkBudget);
+    schedule();
+  }
+
+  function schedule() {
+    if (scheduled || queue.length === 0) {
+      return;
+    }
+    scheduled = true;
+    if (window.requestIdleCallback) {
+      window.requestIdleCallback(highlightWhileIdle, {timeout: 1000});
+    }
+    else {
+      setTimeout(() => highlightWhileIdle({timeRemaining: () => 0}), 0);
+    }
+  }
+
+  function enqueue(code) {
+    const block = {start: null};
+    const marked = getFirstMarkedLine(code);
+    if (marked > contextLines) {
+      const above = splitLines(code, marked - contextLines);
+      if (above) { // start with the marked lines, the lines above are highlighted afterward
+        queue.push({code: code, block: block}, {code: above, block: block});
+        return;
+      }
+    }
+    queue.push({code: code, block: block});
+  }
+
+  function setLanguage(code) {
+    const language = Prism.util.getLanguage(code);
+    const pre = code.parentElement;
+    if (pre && pre.nodeName.toLowerCase() === 'pre') {
+      Prism.util.setLanguage(pre, language);
+    }
+    return language;
+  }
+
+  function applyPlugins(code) {
+    const language = setLanguage(code);
+    Prism.hooks.run('complete', {
+      element: code,
+      language: language,
+      grammar: Prism.languages[language],
+      code: code.textContent
+    });
+  }
+
+  function highlight(code) {
+    if (!window.Prism || timedOut) {
+      return;
+    }
+    if (code.closest('.' + serverHighlighted)) {
+      applyPlugins(code);
+    }
+    else if (workerUrl && hasOnlyLineNumbers(code)) {
+      highlightInWorker(code);
+    }
+    else {
+      enqueue(code);
+      schedule();
+    }
+  }
+
+  function highlightAll() {
+    const blocks = Array.from(document.querySelectorAll(
+      'pre > code[class*="language-"], pre[class*="language-"] > code')); // the classes of compact output are on 'pre'
+    const marked = Math.max(0, blocks.findIndex(code => code.classList.contains('highlight')));
+    blocks.map((code, index) => ({code: code, distance: Math.abs(index - marked)}))
+      .sort((a, b) => a.distance - b.distance) // highlight the marked block and its neighbors first
+      .forEach(block => highlight(block.code));
+    if (queue.length > 0) {
+      highlightChunk(); // the chunk with the marked lines is visible right away
+      schedule();
+    }
+  }
+
+  window.prismViewer = {
+    highlight: highlight
+  };
+
+  if (document.readyState === 'loading') {
+    document.addEventListener('DOMContentLoaded', highlightAll);
+  }
+  else {
+    highlightAll();
+  }
+})();
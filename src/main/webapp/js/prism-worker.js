@@ -0,0 +1,23 @@
+/* global importScripts, Prism */
+/**
+ * Bootstraps the web worker that highlights the source code blocks of the source code view. The worker loads the
+ * Prism core and the required grammars, these scripts are passed as 'script' parameters of the worker URL. The message
+ * handler of the Prism core is disabled: the worker is reused for all blocks of the page, so each message contains the
+ * ID of the block, its code, and its language, and the highlighted HTML is returned together with the ID of the block.
+ */
+(function () {
+  const scripts = new URLSearchParams(self.location.search).getAll('script')
+    .filter(script => new URL(script, self.location.href).origin === self.location.origin);
+
+  self.Prism = {disableWorkerMessageHandler: true};
+  importScripts(...scripts);
+
+  self.addEventListener('message', event => {
+    const job = event.data;
+    const grammar = Prism.languages[job.language];
+    self.postMessage({
+      id: job.id,
+      html: grammar ? Prism.highlight(job.code, grammar, job.language) : Prism.util.encode(job.code)
+    });
+  });
+})();
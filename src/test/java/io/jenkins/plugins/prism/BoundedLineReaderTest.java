@@ -0,0 +1,99 @@
+package io.jenkins.plugins.prism;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.jenkins.plugins.prism.BoundedLineReader.Limit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link BoundedLineReader}.
+ */
+class BoundedLineReaderTest {
+    @Test
+    void shouldReadAllLinesIfNoLimitIsExceeded() {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("first\r\n\nthird\n"), 100, 3, 5);
+
+        assertThat(readLines(reader)).containsExactly("first", "", "third");
+        assertThat(reader.getExceededLimits()).isEmpty();
+    }
+
+    @Test
+    void shouldReadLastLineWithoutNewLine() {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("first\nsecond"), 0);
+
+        assertThat(readLines(reader)).containsExactly("first", "second");
+        assertThat(reader.getExceededLimits()).isEmpty();
+    }
+
+    @Test
+    void shouldStopAfterMaximumNumberOfLines() {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("1\n2\n3\n4\n"), 0, 2, 0);
+
+        assertThat(readLines(reader)).containsExactly("1", "2");
+        assertThat(reader.getExceededLimits()).containsExactly(Limit.LINES);
+    }
+
+    @Test
+    void shouldStopAfterMaximumNumberOfCharacters() {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("one\ntwo\nthree\n"), 6, 0, 0);
+
+        assertThat(readLines(reader)).containsExactly("one", "tw");
+        assertThat(reader.getExceededLimits()).containsExactly(Limit.SIZE);
+    }
+
+    @Test
+    void shouldMeasureSizeInBytesOfUtf8Encoding() {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("äöü\n€€\n"), 10, 0, 0);
+
+        assertThat(readLines(reader)).containsExactly("äöü", "€");
+        assertThat(reader.getExceededLimits()).containsExactly(Limit.SIZE);
+
+        BoundedLineReader fits = new BoundedLineReader(new StringReader("äöü\n€€\n"), 14, 0, 0);
+
+        assertThat(readLines(fits)).containsExactly("äöü", "€€");
+        assertThat(fits.getExceededLimits()).isEmpty();
+    }
+
+    @Test
+    void shouldScanAllLimitsWithoutStoringLines() {
+        String minified = "x".repeat(100_000);
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("short\n" + minified + "\nend\nlast"),
+                0, 3, 10);
+
+        assertThat(reader.scan()).containsExactlyInAnyOrder(Limit.LINES, Limit.LINE_LENGTH);
+
+        assertThat(new BoundedLineReader(new StringReader("short\n" + minified), 50_000, 0, 0).scan())
+                .containsExactly(Limit.SIZE);
+        assertThat(new BoundedLineReader(new StringReader("short\nlines\n"), 12, 2, 5).scan())
+                .isEmpty();
+    }
+
+    @Test
+    void shouldTruncateLongLines() {
+        String minified = "x".repeat(100_000);
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("short\n" + minified + "\nend"), 10);
+
+        assertThat(readLines(reader)).containsExactly("short", "xxxxxxxxxx", "end");
+        assertThat(reader.getExceededLimits()).containsExactly(Limit.LINE_LENGTH);
+    }
+
+    @Test
+    void shouldHandleEmptyFile() {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader(""), 1, 1, 1);
+
+        assertThat(readLines(reader)).isEmpty();
+        assertThat(reader.getExceededLimits()).isEmpty();
+    }
+
+    private List<String> readLines(final BoundedLineReader reader) {
+        try (Stream<String> lines = reader.lines()) {
+            return lines.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.jenkins.plugins.prism.Marker.MarkerBuilder;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link ColumnMarker}.
+ */
+class ColumnMarkerTest {
+    private static final String TEXT = "text that could be code";
+
+    @Test
+    void withColumnStartZeroThenDontMark() throws IOException {
+        ColumnMarker marker = new ColumnMarker(List.of(new MarkerBuilder().withLineStart(1).build()));
+
+        assertThat(marker.isMarked(1)).isFalse();
+        assertThat(mark(marker, TEXT, 1)).isEqualTo(TEXT);
+    }
+
+    @Test
+    void givenColumnStartAndColumnEndThenMarkFromColumnStartToColumnEnd() throws IOException {
+        assertThat(mark(TEXT, 6, 10)).isEqualTo("text [that ]could be code");
+        assertThat(mark(TEXT, 6, 7)).isEqualTo("text [th]at could be code");
+        assertThat(mark(TEXT, 6, 6)).isEqualTo("text [t]hat could be code");
+    }
+
+    @Test
+    void givenColumnEndPointingToLineEndThenMarkFromStartToLineEnd() throws IOException {
+        assertThat(mark(TEXT, 6, 23)).isEqualTo("text [that could be code]");
+        assertThat(mark(TEXT, 6, 24)).isEqualTo("text [that could be code]");
+        assertThat(mark(TEXT, 23, 23)).isEqualTo("text that could be cod[e]");
+    }
+
+    @Test
+    void givenColumnStartWithValueOneThenMarkTheLineFromBegin() throws IOException {
+        assertThat(mark(TEXT, 1, 6)).isEqualTo("[text t]hat could be code");
+    }
+
+    @Test
+    void givenInvalidColumnsThenDoNotMark() throws IOException {
+        assertThat(mark("", 6, 6)).isEmpty();
+        assertThat(mark(TEXT, 30, 40)).isEqualTo(TEXT);
+        assertThat(mark(TEXT, 1, 25)).isEqualTo(TEXT);
+    }
+
+    @Test
+    void shouldIgnoreOtherLines() throws IOException {
+        ColumnMarker marker = createMarker(2, 1, 2, 4);
+
+        assertThat(marker.isMarked(1)).isFalse();
+        assertThat(marker.isMarked(2)).isTrue();
+        assertThat(marker.isMarked(3)).isFalse();
+        assertThat(mark(marker, TEXT, 1)).isEqualTo(TEXT);
+        assertThat(mark(marker, TEXT, 2)).isEqualTo("[text] that could be code");
+    }
+
+    @Test
+    void shouldMarkSeveralRangesInTheSameLine() throws IOException {
+        ColumnMarker marker = new ColumnMarker(List.of(
+                createColumnMarker(1, 20, 23),
+                createColumnMarker(1, 1, 4),
+                createColumnMarker(1, 6, 9),
+                createColumnMarker(1, 8, 15)));
+
+        assertThat(mark(marker, TEXT, 1)).isEqualTo("[text] [that could] be [code]");
+    }
+
+    @Test
+    void shouldMarkRangesThatSpanSeveralLines() throws IOException {
+        ColumnMarker marker = createMarker(2, 6, 4, 4);
+
+        assertThat(mark(marker, TEXT, 1)).isEqualTo(TEXT);
+        assertThat(mark(marker, TEXT, 2)).isEqualTo("text [that could be code]");
+        assertThat(mark(marker, TEXT, 3)).isEqualTo("[text that could be code]");
+        assertThat(mark(marker, "", 3)).isEmpty();
+        assertThat(mark(marker, TEXT, 4)).isEqualTo("[text] that could be code");
+        assertThat(mark(marker, TEXT, 5)).isEqualTo(TEXT);
+    }
+
+    @Test
+    void shouldEscapeMarkedAndUnmarkedText() throws IOException {
+        ColumnMarker marker = new ColumnMarker(List.of(createColumnMarker(1, 3, 10)));
+
+        StringWriter writer = new StringWriter();
+        marker.writeLine("a<b&&c>\"d'e<f>", 1, writer);
+
+        assertThat(writer.toString()).isEqualTo(
+                "a&lt;<span class='code-mark'>b&amp;&amp;c&gt;&quot;d&#39;</span>e&lt;f&gt;");
+    }
+
+    @Test
+    void shouldMarkOnlyTheColumnsWithinTheWindow() throws IOException {
+        ColumnMarker marker = new ColumnMarker(List.of(createColumnMarker(1, 3, 10), createColumnMarker(1, 20, 21)));
+
+        StringWriter writer = new StringWriter();
+        marker.writeLine(TEXT, 1, 5, 15, writer);
+
+        assertThat(writer.toString()).isEqualTo("<span class='code-mark'>that </span>could");
+    }
+
+    @Test
+    void shouldReturnTheMarkedRange() {
+        ColumnMarker marker = new ColumnMarker(List.of(createColumnMarker(1, 20, 21), createColumnMarker(1, 3, 10)));
+
+        assertThat(marker.getMarkedRange(TEXT, 1)).containsExactly(2, 21);
+        assertThat(marker.getMarkedRange(TEXT, 2)).containsExactly(0, 0);
+    }
+
+    @Test
+    void shouldMarkUnsortedMarkersOfManyLines() throws IOException {
+        List<Marker> markers = new ArrayList<>();
+        for (int line = 1000; line >= 1; line--) {
+            markers.add(new MarkerBuilder().withLineStart(line).withColumnStart(1).withColumnEnd(4).build());
+        }
+        markers.add(new MarkerBuilder().withLineStart(10).withColumnStart(6)
+                .withLineEnd(20).withColumnEnd(10).build());
+        ColumnMarker marker = new ColumnMarker(markers);
+
+        assertThat(mark(marker, TEXT, 1)).isEqualTo("[text] that could be code");
+        assertThat(mark(marker, TEXT, 10)).isEqualTo("[text] [that could be code]");
+        assertThat(mark(marker, TEXT, 15)).isEqualTo("[text that could be code]");
+        assertThat(mark(marker, TEXT, 20)).isEqualTo("[text that ]could be code");
+        assertThat(mark(marker, TEXT, 21)).isEqualTo("[text] that could be code");
+        assertThat(marker.isMarked(1000)).isTrue();
+        assertThat(marker.isMarked(1001)).isFalse();
+
+        assertThat(marker.isMarked(15)).as("should restart for a previous line").isTrue();
+        assertThat(mark(marker, TEXT, 15)).isEqualTo("[text that could be code]");
+        assertThat(mark(marker, TEXT, 5)).isEqualTo("[text] that could be code");
+    }
+
+    private String mark(final String text, final int columnStart, final int columnEnd) throws IOException {
+        return mark(new ColumnMarker(List.of(createColumnMarker(1, columnStart, columnEnd))), text, 1);
+    }
+
+    private Marker createColumnMarker(final int line, final int columnStart, final int columnEnd) {
+        return new MarkerBuilder().withLineStart(line).withColumnStart(columnStart).withColumnEnd(columnEnd).build();
+    }
+
+    private ColumnMarker createMarker(final int lineStart, final int columnStart, final int lineEnd,
+            final int columnEnd) {
+        return new ColumnMarker(List.of(new MarkerBuilder()
+                .withLineStart(lineStart).withColumnStart(columnStart)
+                .withLineEnd(lineEnd).withColumnEnd(columnEnd)
+                .build()));
+    }
+
+    private String mark(final ColumnMarker marker, final String text, final int line) throws IOException {
+        StringWriter writer = new StringWriter();
+        marker.writeLine(text, line, writer);
+        return writer.toString().replace("<span class='code-mark'>", "[").replace("</span>", "]");
+    }
+}
@@ -29,6 +29,18 @@ class ConfigurationAsCodeITest extends IntegrationTestWithJenkinsPerTest {
                 .containsExactlyInAnyOrder("C:\\Windows", "/absolute");
     }
 
+    /** Reads a YAML file with the limits for large files. */
+    @Test
+    void shouldImportLargeFileLimits() {
+        configureJenkins("largeFileLimits.yaml");
+
+        PrismConfiguration configuration = PrismConfiguration.getInstance();
+        assertThat(configuration.getMaximumFileSize()).isEqualTo(5);
+        assertThat(configuration.getMaximumLines()).isEqualTo(1000);
+        assertThat(configuration.getMaximumLineLength()).isEqualTo(200);
+        assertThat(configuration.getLargeFileMode()).isEqualTo(LargeFileMode.PLAIN_TEXT);
+    }
+
     /** Reads a YAML file with the active theme. */
     @Test
     void shouldImportTheme() {
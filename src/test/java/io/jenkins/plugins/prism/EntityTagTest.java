@@ -0,0 +1,45 @@
+package io.jenkins.plugins.prism;
+
+import org.junit.jupiter.api.Test;
+
+import io.jenkins.plugins.prism.EntityTag.EntityTagBuilder;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link EntityTag}.
+ */
+class EntityTagTest {
+    @Test
+    void shouldCreateStrongTagFromParts() {
+        EntityTag tag = new EntityTagBuilder().add("job#1").add("Main.java").add(42).build();
+
+        assertThat(tag.getValue()).startsWith("\"").endsWith("\"").hasSize(64 + 2);
+        assertThat(tag.getValue()).doesNotStartWith("W/");
+        assertThat(tag).hasToString(tag.getValue());
+        assertThat(new EntityTagBuilder().add("job#1").add("Main.java").add(42).build().getValue())
+                .isEqualTo(tag.getValue());
+    }
+
+    @Test
+    void shouldSeparateParts() {
+        assertThat(new EntityTagBuilder().add("ab").add("c").build().getValue())
+                .isNotEqualTo(new EntityTagBuilder().add("a").add("bc").build().getValue());
+        assertThat(new EntityTagBuilder().add(null).build().getValue())
+                .isNotEqualTo(new EntityTagBuilder().build().getValue());
+    }
+
+    @Test
+    void shouldMatchIfNoneMatchHeader() {
+        EntityTag tag = new EntityTagBuilder().add("content").build();
+        String other = new EntityTagBuilder().add("other").build().getValue();
+
+        assertThat(tag.matches(null)).isFalse();
+        assertThat(tag.matches("")).isFalse();
+        assertThat(tag.matches(other)).isFalse();
+        assertThat(tag.matches(tag.getValue())).isTrue();
+        assertThat(tag.matches(other + ", " + tag.getValue())).isTrue();
+        assertThat(tag.matches("W/" + tag.getValue())).isTrue();
+        assertThat(tag.matches("*")).isTrue();
+    }
+}
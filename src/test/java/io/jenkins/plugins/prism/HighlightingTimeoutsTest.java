@@ -0,0 +1,63 @@
+package io.jenkins.plugins.prism;
+
+import org.junit.jupiter.api.Test;
+
+import io.jenkins.plugins.prism.HighlightingTimeouts.HighlightingTimeout;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link HighlightingTimeouts}.
+ */
+class HighlightingTimeoutsTest {
+    private static final String JAVA = "language-java";
+    private static final String JS = "language-js";
+
+    @Test
+    void shouldCountTimeoutsPerFileAndLanguage() {
+        HighlightingTimeouts timeouts = new HighlightingTimeouts(10);
+
+        assertThat(timeouts.getTimeouts()).isEmpty();
+
+        timeouts.record("Main.java", JAVA);
+        timeouts.record("app.min.js", JS);
+        timeouts.record("app.min.js", JS);
+        timeouts.record("Main.java", JS);
+
+        assertThat(timeouts.getTimeouts())
+                .extracting(HighlightingTimeout::getFileName, HighlightingTimeout::getLanguage,
+                        HighlightingTimeout::getCount)
+                .containsExactly(
+                        tuple("app.min.js", JS, 2L),
+                        tuple("Main.java", JAVA, 1L),
+                        tuple("Main.java", JS, 1L));
+
+        timeouts.clear();
+        assertThat(timeouts.getTimeouts()).isEmpty();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyTimedOutFile() {
+        HighlightingTimeouts timeouts = new HighlightingTimeouts(2);
+
+        timeouts.record("first.js", JS);
+        timeouts.record("second.js", JS);
+        timeouts.record("first.js", JS);
+        timeouts.record("third.js", JS);
+
+        assertThat(timeouts.getTimeouts()).extracting(HighlightingTimeout::getFileName)
+                .containsExactly("first.js", "third.js");
+    }
+
+    @Test
+    void shouldReturnCopies() {
+        HighlightingTimeouts timeouts = new HighlightingTimeouts(2);
+
+        timeouts.record("first.js", JS);
+        HighlightingTimeout copy = timeouts.getTimeouts().get(0);
+        timeouts.record("first.js", JS);
+
+        assertThat(copy.getCount()).isOne();
+        assertThat(timeouts.getTimeouts().get(0).getCount()).isEqualTo(2);
+    }
+}
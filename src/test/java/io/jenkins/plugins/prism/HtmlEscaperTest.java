@@ -0,0 +1,88 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link HtmlEscaper}.
+ */
+class HtmlEscaperTest {
+    @Test
+    void shouldEscapeSpecialCharacters() {
+        assertThat(HtmlEscaper.escape("")).isEmpty();
+        assertThat(HtmlEscaper.escape("plain text")).isEqualTo("plain text");
+        assertThat(HtmlEscaper.escape("a < b && c > \"d\" || 'e'"))
+                .isEqualTo("a &lt; b &amp;&amp; c &gt; &quot;d&quot; || &#39;e&#39;");
+        assertThat(HtmlEscaper.escape("<>&\"'")).isEqualTo("&lt;&gt;&amp;&quot;&#39;");
+        assertThat(HtmlEscaper.escape("&amp;")).isEqualTo("&amp;amp;");
+    }
+
+    @Test
+    void shouldKeepUnicodeCharacters() {
+        assertThat(HtmlEscaper.escape("Grüße: äöü € 😀")).isEqualTo("Grüße: äöü € 😀");
+    }
+
+    @Test
+    void shouldEscapeRegionOfText() throws IOException {
+        StringWriter writer = new StringWriter();
+        HtmlEscaper.escape(new StringBuilder("<a>text</a>"), 3, 9, writer);
+
+        assertThat(writer.toString()).isEqualTo("text&lt;/");
+    }
+
+    @Test
+    void shouldEscapeCharBufferLikeString() throws IOException {
+        String text = "if (a < b && c > 'd') { return \"e\"; }";
+        String expected = HtmlEscaper.escape(text);
+
+        char[] padded = ("--" + text + "--").toCharArray();
+        CharBuffer positioned = CharBuffer.wrap(padded, 2, text.length());
+        CharBuffer sliced = CharBuffer.wrap(padded, 1, text.length() + 1).slice();
+        sliced.position(1);
+
+        for (CharBuffer buffer : new CharBuffer[] {CharBuffer.wrap(text.toCharArray()), positioned, sliced,
+                CharBuffer.wrap(text)}) {
+            assertThat(escape(buffer, 0, buffer.length())).isEqualTo(expected);
+            assertThat(escape(buffer, 3, 16)).isEqualTo(HtmlEscaper.escape(text.substring(3, 16)));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {
+            "<script>alert('xss')</script>",
+            "</code></pre><script>alert(1)</script>",
+            "<img src=x onerror=alert(1)>",
+            "\"><svg onload=alert(1)>",
+            "' onmouseover='alert(1)",
+            "<!--<script>alert(1)</script>-->",
+            "<![CDATA[<script>alert(1)</script>]]>",
+            "<a href=\"javascript:alert(1)\">link</a>",
+            "&lt;script&gt;alert(1)&lt;/script&gt;"
+    })
+    void shouldNotCreateElementsOrAttributes(final String payload) {
+        String escaped = HtmlEscaper.escape(payload);
+
+        assertThat(escaped).doesNotContain("<", ">", "\"", "'");
+
+        Document document = Jsoup.parse("<pre><code title=\"" + escaped + "\">" + escaped + "</code></pre>");
+        assertThat(document.select("script, img, svg, a")).isEmpty();
+        assertThat(document.getElementsByTag("code").text()).isEqualTo(payload);
+        assertThat(document.getElementsByTag("code").attr("title")).isEqualTo(payload);
+        assertThat(document.getElementsByTag("code").first().attributes().size()).isOne();
+    }
+
+    private String escape(final CharSequence text, final int start, final int end) throws IOException {
+        StringWriter writer = new StringWriter();
+        HtmlEscaper.escape(text, start, end, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.assertj.core.api.Assumptions.*;
+
+/**
+ * Tests the class {@link LineIndex}.
+ */
+class LineIndexTest {
+    @TempDir
+    private Path folder;
+
+    @Test
+    void shouldIndexAllLineTerminators() throws IOException {
+        Path file = write("first\nsecond\r\nthird\rfourth");
+
+        LineIndex index = LineIndex.create(file);
+
+        assertThat(index.getLineCount()).isEqualTo(4);
+        assertThat(index.getSize()).isEqualTo(26);
+        assertThat(index.getOffset(1)).isZero();
+        assertThat(index.getOffset(2)).isEqualTo(6);
+        assertThat(index.getOffset(3)).isEqualTo(14);
+        assertThat(index.getOffset(4)).isEqualTo(20);
+        assertThat(index.getOffset(5)).isEqualTo(26);
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> index.getOffset(0));
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> index.getOffset(6));
+    }
+
+    @Test
+    void shouldCountLinesLikeBufferedReader() throws IOException {
+        assertThat(LineIndex.create(write("")).getLineCount()).isZero();
+        assertThat(LineIndex.create(write("line\n")).getLineCount()).isEqualTo(1);
+        assertThat(LineIndex.create(write("line\r\n")).getLineCount()).isEqualTo(1);
+        assertThat(LineIndex.create(write("\n\n")).getLineCount()).isEqualTo(2);
+        assertThat(LineIndex.create(write("\r\r\n\n")).getLineCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldIndexLinesAcrossBufferBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int line = 1; line <= 50_000; line++) {
+            content.append("line ").append(line).append("\r\n");
+        }
+        Path file = write(content.toString());
+
+        LineIndex index = LineIndex.create(file);
+
+        assertThat(index.getLineCount()).isEqualTo(50_000);
+        assertThat(readLineAt(file, index, 1)).isEqualTo("line 1");
+        assertThat(readLineAt(file, index, 12_345)).isEqualTo("line 12345");
+        assertThat(readLineAt(file, index, 50_000)).isEqualTo("line 50000");
+    }
+
+    @Test
+    void shouldStoreIndexInSidecarFile() throws IOException {
+        Path file = write("first\nsecond with a longer line\nthird");
+
+        LineIndex stored = LineIndex.store(file);
+
+        assertThat(LineIndex.getIndexFile(file)).exists().hasFileName("Source.java" + LineIndex.SUFFIX);
+        assertThat(LineIndex.read(file)).hasValueSatisfying(index -> {
+            assertThat(index.getLineCount()).isEqualTo(stored.getLineCount());
+            assertThat(index.getSize()).isEqualTo(stored.getSize());
+            for (int line = 1; line <= stored.getLineCount() + 1; line++) {
+                assertThat(index.getOffset(line)).isEqualTo(stored.getOffset(line));
+            }
+        });
+    }
+
+    @Test
+    void shouldCreateIndexLazily() throws IOException {
+        Path file = write("first\nsecond");
+        assertThat(LineIndex.read(file)).isEmpty();
+
+        LineIndex index = LineIndex.load(file);
+
+        assertThat(index.getOffset(2)).isEqualTo(6);
+        assertThat(LineIndex.getIndexFile(file)).exists();
+        assertThat(LineIndex.read(file)).isPresent();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void shouldReturnIndexIfFolderIsNotWritable() throws IOException {
+        Path file = write("first\nsecond");
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(folder);
+        Files.setPosixFilePermissions(folder, PosixFilePermissions.fromString("r-xr-xr-x"));
+        try {
+            assumeThat(Files.isWritable(folder)).as("Folder is still writable for the current user").isFalse();
+
+            LineIndex index = LineIndex.load(file);
+
+            assertThat(index.getLineCount()).isEqualTo(2);
+            assertThat(index.getOffset(2)).isEqualTo(6);
+            assertThat(LineIndex.getIndexFile(file)).doesNotExist();
+        }
+        finally {
+            Files.setPosixFilePermissions(folder, permissions);
+        }
+    }
+
+    @Test
+    void shouldReturnIndexIfSidecarFileCannotBeReplaced() throws IOException {
+        Path file = write("first\nsecond");
+        Path blocked = Files.createDirectory(LineIndex.getIndexFile(file));
+        Files.writeString(blocked.resolve("content"), "not empty");
+
+        assertThat(LineIndex.read(file)).isEmpty();
+        LineIndex index = LineIndex.load(file);
+
+        assertThat(index.getLineCount()).isEqualTo(2);
+        assertThat(blocked).isDirectory();
+        assertThat(folder).isDirectoryNotContaining("glob:**.tmp");
+    }
+
+    @Test
+    void shouldIgnoreOutdatedOrCorruptSidecarFile() throws IOException {
+        Path file = write("first\nsecond");
+        LineIndex.store(file);
+
+        Files.writeString(file, "changed\nsecond\nthird");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertThat(LineIndex.read(file)).isEmpty();
+        assertThat(LineIndex.load(file).getLineCount()).isEqualTo(3);
+        assertThat(LineIndex.read(file)).hasValueSatisfying(index -> assertThat(index.getLineCount()).isEqualTo(3));
+
+        Files.write(LineIndex.getIndexFile(file), new byte[] {1, 2, 3});
+        assertThat(LineIndex.read(file)).isEmpty();
+    }
+
+    @Test
+    void shouldSupportOnlyCharsetsWithSingleByteTerminators() {
+        assertThat(LineIndex.isSupported(StandardCharsets.UTF_8)).isTrue();
+        assertThat(LineIndex.isSupported(StandardCharsets.ISO_8859_1)).isTrue();
+        assertThat(LineIndex.isSupported(StandardCharsets.UTF_16)).isFalse();
+        assertThat(LineIndex.isSupported(StandardCharsets.UTF_16LE)).isFalse();
+    }
+
+    private Path write(final String content) throws IOException {
+        Path file = folder.resolve("Source.java");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private String readLineAt(final Path file, final LineIndex index, final int line) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int start = (int) index.getOffset(line);
+        int end = (int) index.getOffset(line + 1);
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8).strip();
+    }
+}
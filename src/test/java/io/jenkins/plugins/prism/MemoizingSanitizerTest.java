@@ -0,0 +1,134 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import hudson.markup.MarkupFormatter;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the class {@link MemoizingSanitizer}.
+ */
+class MemoizingSanitizerTest {
+    private static final String DESCRIPTION = "<p>Description</p><script>alert('evil');</script>";
+
+    @Test
+    void shouldSanitizeOnlyOnce() throws IOException {
+        MemoizingSanitizer sanitizer = new MemoizingSanitizer();
+        MarkupFormatter formatter = createFormatter();
+        sanitizer.setMarkupFormatter(formatter);
+
+        assertThat(sanitizer.render(DESCRIPTION)).isEqualTo("sanitized: " + DESCRIPTION);
+        assertThat(sanitizer.render(DESCRIPTION)).isEqualTo("sanitized: " + DESCRIPTION);
+        assertThat(sanitizer.render("other")).isEqualTo("sanitized: other");
+
+        verify(formatter).translate(DESCRIPTION);
+        verify(formatter).translate("other");
+        assertThat(sanitizer.size()).isEqualTo(2);
+        assertThat(sanitizer.getHitCount()).isOne();
+        assertThat(sanitizer.getMissCount()).isEqualTo(2);
+        assertThat(sanitizer.getEvictionCount()).isZero();
+
+        sanitizer.clear();
+        assertThat(sanitizer.size()).isZero();
+        assertThat(sanitizer.render(DESCRIPTION)).isEqualTo("sanitized: " + DESCRIPTION);
+        assertThat(sanitizer.getMissCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedSnippets() throws IOException {
+        MemoizingSanitizer sanitizer = new MemoizingSanitizer(2);
+        MarkupFormatter formatter = createFormatter();
+        sanitizer.setMarkupFormatter(formatter);
+
+        sanitizer.render("first");
+        sanitizer.render("second");
+        sanitizer.render("first");
+        sanitizer.render("third");
+
+        assertThat(sanitizer.size()).isEqualTo(2);
+        assertThat(sanitizer.getEvictionCount()).isOne();
+
+        sanitizer.render("first");
+        sanitizer.render("second");
+
+        verify(formatter, times(1)).translate("first");
+        verify(formatter, times(2)).translate("second");
+    }
+
+    @Test
+    void shouldEvictSnippetsIfMaximumSizeIsExceeded() throws IOException {
+        MemoizingSanitizer sanitizer = new MemoizingSanitizer(100, 400);
+        MarkupFormatter formatter = createFormatter();
+        sanitizer.setMarkupFormatter(formatter);
+
+        String first = "1".repeat(60);
+        String second = "2".repeat(60);
+        sanitizer.render(first);
+        sanitizer.render(second);
+        sanitizer.render("3".repeat(60));
+        sanitizer.render("4".repeat(60));
+        sanitizer.render("5".repeat(60));
+        assertThat(sanitizer.size()).isEqualTo(5);
+        assertThat(sanitizer.getSize()).isEqualTo(5 * (60 + "sanitized: ".length()));
+
+        sanitizer.render(first);
+        sanitizer.render("6".repeat(60));
+
+        assertThat(sanitizer.size()).isEqualTo(5);
+        assertThat(sanitizer.getSize()).isLessThanOrEqualTo(400);
+        assertThat(sanitizer.getEvictionCount()).isOne();
+
+        sanitizer.render(first);
+        sanitizer.render(second);
+        verify(formatter, times(1)).translate(first);
+        verify(formatter, times(2)).translate(second);
+
+        sanitizer.clear();
+        assertThat(sanitizer.getSize()).isZero();
+    }
+
+    @Test
+    void shouldNotCacheLargeSnippets() throws IOException {
+        MemoizingSanitizer sanitizer = new MemoizingSanitizer(100, 400);
+        MarkupFormatter formatter = createFormatter();
+        sanitizer.setMarkupFormatter(formatter);
+
+        String large = "x".repeat(100);
+        assertThat(sanitizer.render(large)).isEqualTo("sanitized: " + large);
+        assertThat(sanitizer.render(large)).isEqualTo("sanitized: " + large);
+
+        assertThat(sanitizer.size()).isZero();
+        assertThat(sanitizer.getSize()).isZero();
+        verify(formatter, times(2)).translate(large);
+    }
+
+    @Test
+    void shouldNotCacheFailures() throws IOException {
+        MemoizingSanitizer sanitizer = new MemoizingSanitizer();
+        MarkupFormatter formatter = mock(MarkupFormatter.class);
+        when(formatter.translate(anyString())).thenThrow(new IOException("Failure"));
+        sanitizer.setMarkupFormatter(formatter);
+
+        assertThat(sanitizer.render("C++")).isEqualTo("IOException: Failure");
+        assertThat(sanitizer.size()).isZero();
+    }
+
+    @Test
+    void shouldRemoveUnsafeHtml() {
+        MemoizingSanitizer sanitizer = new MemoizingSanitizer();
+
+        assertThat(sanitizer.render(DESCRIPTION)).isEqualTo("<p>Description</p>");
+        assertThat(sanitizer.render(DESCRIPTION)).isEqualTo("<p>Description</p>");
+        assertThat(sanitizer.getHitCount()).isOne();
+    }
+
+    private MarkupFormatter createFormatter() throws IOException {
+        MarkupFormatter formatter = mock(MarkupFormatter.class);
+        when(formatter.translate(anyString())).thenAnswer(invocation -> "sanitized: " + invocation.getArgument(0));
+        return formatter;
+    }
+}
@@ -27,6 +27,109 @@ class PrismAppearanceConfigurationTest {
         assertThat(configuration.doFillThemeItems()).extracting(o -> o.value).contains(PrismTheme.PRISM.name());
     }
 
+    @Test
+    void shouldInitializeContextLines() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.getContextLines()).isZero();
+        configuration.setContextLines(20);
+        assertThat(configuration.getContextLines()).isEqualTo(20);
+        configuration.setContextLines(-1);
+        assertThat(configuration.getContextLines()).isZero();
+    }
+
+    @Test
+    void shouldInitializeServerSideHighlighting() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.isServerSideHighlighting()).isFalse();
+        configuration.setServerSideHighlighting(true);
+        assertThat(configuration.isServerSideHighlighting()).isTrue();
+    }
+
+    @Test
+    void shouldInitializeServerSideLineNumbers() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.isServerSideLineNumbers()).isFalse();
+        configuration.setServerSideLineNumbers(true);
+        assertThat(configuration.isServerSideLineNumbers()).isTrue();
+    }
+
+    @Test
+    void shouldInitializeCompactOutput() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.isCompactOutput()).isFalse();
+        configuration.setCompactOutput(true);
+        assertThat(configuration.isCompactOutput()).isTrue();
+    }
+
+    @Test
+    void shouldInitializeSingleCodeBlock() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.isSingleCodeBlock()).isFalse();
+        configuration.setSingleCodeBlock(true);
+        assertThat(configuration.isSingleCodeBlock()).isTrue();
+    }
+
+    @Test
+    void shouldInitializeVirtualScrolling() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.isVirtualScrolling()).isFalse();
+        configuration.setVirtualScrolling(true);
+        assertThat(configuration.isVirtualScrolling()).isTrue();
+    }
+
+    @Test
+    void shouldSelectPluginProfileBySizeAndLines() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.selectPluginProfile(1000, 100)).isEqualTo(PluginProfile.FULL);
+        assertThat(configuration.selectPluginProfile(1000, 2001)).isEqualTo(PluginProfile.LEAN);
+        assertThat(configuration.selectPluginProfile(256 * 1024 + 1, 100)).isEqualTo(PluginProfile.LEAN);
+        assertThat(configuration.selectPluginProfile(1000, 20_001)).isEqualTo(PluginProfile.MINIMAL);
+
+        configuration.setLeanProfileLines(0);
+        configuration.setLeanProfileSize(-1);
+        configuration.setMinimalProfileLines(0);
+
+        assertThat(configuration.getLeanProfileSize()).isZero();
+        assertThat(configuration.selectPluginProfile(Integer.MAX_VALUE, Integer.MAX_VALUE))
+                .isEqualTo(PluginProfile.FULL);
+    }
+
+    @Test
+    void shouldInitializeHighlightingTimeout() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.getHighlightingTimeout())
+                .isEqualTo(PrismAppearanceConfiguration.DEFAULT_HIGHLIGHTING_TIMEOUT);
+        configuration.setHighlightingTimeout(0);
+        assertThat(configuration.getHighlightingTimeout()).isZero();
+        configuration.setHighlightingTimeout(-1);
+        assertThat(configuration.getHighlightingTimeout()).isZero();
+    }
+
+    @Test
+    void shouldInitializeRenderCacheSize() {
+        PrismAppearanceConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.getRenderCacheSize()).isEqualTo(PrismAppearanceConfiguration.DEFAULT_RENDER_CACHE_SIZE);
+        assertThat(RenderCache.getInstance().getMaximumSize()).isEqualTo(RenderCache.DEFAULT_MAXIMUM_SIZE);
+        configuration.setRenderCacheSize(0);
+        assertThat(configuration.getRenderCacheSize()).isZero();
+        assertThat(RenderCache.getInstance().getMaximumSize()).isZero();
+        configuration.setRenderCacheSize(-1);
+        assertThat(configuration.getRenderCacheSize()).isZero();
+        configuration.setRenderCacheSize(1);
+        assertThat(RenderCache.getInstance().getMaximumSize()).isEqualTo(1024 * 1024);
+
+        configuration.setRenderCacheSize(PrismAppearanceConfiguration.DEFAULT_RENDER_CACHE_SIZE);
+    }
+
     private PrismAppearanceConfiguration createConfiguration() {
         JenkinsFacade jenkins = mock(JenkinsFacade.class);
         when(jenkins.hasPermission(Jenkins.ADMINISTER)).thenReturn(true);
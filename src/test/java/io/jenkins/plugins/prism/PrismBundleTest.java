@@ -0,0 +1,163 @@
+package io.jenkins.plugins.prism;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the class {@link PrismBundle}.
+ */
+class PrismBundleTest {
+    private static final String SCRIPT = "prism-bundle.0123456789abcdef.js";
+    private static final String STYLESHEET = "prism-bundle.fedcba9876543210.css";
+    private static final String MINIMAL_SCRIPT = "prism-bundle.00000000aaaaaaaa.js";
+    private static final String MINIMAL_STYLESHEET = "prism-bundle.00000000bbbbbbbb.css";
+
+    @Test
+    void shouldProvideUrlsOfBundles() {
+        PrismBundle bundle = new PrismBundle("test-bundle/");
+
+        assertThat(bundle.isAvailable()).isTrue();
+        assertThat(bundle.getUrlName()).isEqualTo("prism-bundle");
+        assertThat(bundle.getScriptUrl(PluginProfile.FULL)).isEqualTo("prism-bundle/" + SCRIPT);
+        assertThat(bundle.getStylesheetUrl(PluginProfile.FULL)).isEqualTo("prism-bundle/" + STYLESHEET);
+        assertThat(bundle.getIconFileName()).isNull();
+        assertThat(bundle.getDisplayName()).isNull();
+    }
+
+    @Test
+    void shouldSelectBundlesOfProfile() throws IOException {
+        PrismBundle bundle = new PrismBundle("test-bundle/");
+
+        assertThat(bundle.getScriptUrl(null)).isEqualTo("prism-bundle/" + SCRIPT);
+        assertThat(bundle.getStylesheetUrl(null)).isEqualTo("prism-bundle/" + STYLESHEET);
+        assertThat(bundle.getScriptUrl(PluginProfile.MINIMAL)).isEqualTo("prism-bundle/" + MINIMAL_SCRIPT);
+        assertThat(bundle.getStylesheetUrl(PluginProfile.MINIMAL)).isEqualTo("prism-bundle/" + MINIMAL_STYLESHEET);
+
+        assertThat(serve(bundle, MINIMAL_SCRIPT, null, null)).isEqualTo("var Prism = {minimal: true};\n");
+    }
+
+    @Test
+    void shouldNotBeAvailableIfBundleOfProfileIsMissing() {
+        PrismBundle bundle = new PrismBundle("test-bundle-incomplete/");
+
+        assertThat(bundle.isAvailable()).isFalse();
+    }
+
+    @Test
+    void shouldNotBeAvailableIfBundlesHaveNotBeenCreated() throws IOException {
+        PrismBundle bundle = new PrismBundle("does-not-exist/");
+
+        assertThat(bundle.isAvailable()).isFalse();
+
+        StaplerResponse2 response = mock(StaplerResponse2.class);
+        bundle.doDynamic(createRequest("/", null), response);
+
+        verify(response).sendError(StaplerResponse2.SC_NOT_FOUND);
+    }
+
+    @Test
+    void shouldServePrecompressedVariants() throws IOException {
+        PrismBundle bundle = new PrismBundle("test-bundle/");
+
+        assertThat(serve(bundle, SCRIPT, "gzip, deflate, br", "br")).isEqualTo("brotli-content\n");
+        assertThat(serve(bundle, SCRIPT, "gzip, deflate", "gzip")).isEqualTo("gzip-content\n");
+        assertThat(serve(bundle, SCRIPT, null, null)).isEqualTo("var Prism = {};\n");
+    }
+
+    @Test
+    void shouldServeUncompressedBundleIfVariantIsMissing() throws IOException {
+        PrismBundle bundle = new PrismBundle("test-bundle/");
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        StaplerResponse2 response = createResponse(content);
+        bundle.doDynamic(createRequest("/" + STYLESHEET, "br"), response);
+
+        assertThat(content.toString(StandardCharsets.UTF_8)).isEqualTo("pre{margin:0}\n");
+        verify(response).setContentType("text/css;charset=UTF-8");
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+    }
+
+    @Test
+    void shouldRejectUnknownFiles() throws IOException {
+        PrismBundle bundle = new PrismBundle("test-bundle/");
+
+        for (String path : new String[] {"/bundle.properties", "/../PrismBundle.class", "/" + SCRIPT + ".gz", "/"}) {
+            StaplerResponse2 response = mock(StaplerResponse2.class);
+            bundle.doDynamic(createRequest(path, "gzip"), response);
+
+            verify(response).sendError(StaplerResponse2.SC_NOT_FOUND);
+            verify(response, never()).getOutputStream();
+        }
+    }
+
+    private String serve(final PrismBundle bundle, final String name, final String acceptEncoding,
+            final String contentEncoding) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        StaplerResponse2 response = createResponse(content);
+        bundle.doDynamic(createRequest("/" + name, acceptEncoding), response);
+
+        verify(response).setContentType("application/javascript;charset=UTF-8");
+        verify(response).setHeader("Cache-Control", "public, max-age=31536000, immutable");
+        verify(response).setHeader("Vary", "Accept-Encoding");
+        if (contentEncoding == null) {
+            verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        }
+        else {
+            verify(response).setHeader("Content-Encoding", contentEncoding);
+        }
+        return content.toString(StandardCharsets.UTF_8);
+    }
+
+    private StaplerRequest2 createRequest(final String path, final String acceptEncoding) {
+        StaplerRequest2 request = mock(StaplerRequest2.class);
+        when(request.getRestOfPath()).thenReturn(path);
+        when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        return request;
+    }
+
+    private StaplerResponse2 createResponse(final ByteArrayOutputStream content) throws IOException {
+        StaplerResponse2 response = mock(StaplerResponse2.class);
+        when(response.getOutputStream()).thenReturn(new CapturingOutputStream(content));
+        return response;
+    }
+
+    /**
+     * Captures the content written to the servlet output stream.
+     */
+    private static class CapturingOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream content;
+
+        CapturingOutputStream(final ByteArrayOutputStream content) {
+            super();
+
+            this.content = content;
+        }
+
+        @Override
+        public void write(final int b) {
+            content.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+            // not required
+        }
+    }
+}
@@ -100,6 +100,26 @@ class PrismConfigurationTest {
         assertThat(log.getErrorMessages()).isEmpty();
     }
 
+    @Test
+    void shouldInitializeLargeFileLimits() {
+        PrismConfiguration configuration = createConfiguration();
+
+        assertThat(configuration.getMaximumFileSize()).isEqualTo(PrismConfiguration.DEFAULT_MAXIMUM_FILE_SIZE);
+        assertThat(configuration.getMaximumLines()).isEqualTo(PrismConfiguration.DEFAULT_MAXIMUM_LINES);
+        assertThat(configuration.getMaximumLineLength()).isEqualTo(PrismConfiguration.DEFAULT_MAXIMUM_LINE_LENGTH);
+        assertThat(configuration.getLargeFileMode()).isEqualTo(LargeFileMode.EXCERPT);
+
+        configuration.setMaximumFileSize(-1);
+        configuration.setMaximumLines(-1);
+        configuration.setMaximumLineLength(-1);
+        configuration.setLargeFileMode(LargeFileMode.DOWNLOAD);
+
+        assertThat(configuration.getMaximumFileSize()).isZero();
+        assertThat(configuration.getMaximumLines()).isZero();
+        assertThat(configuration.getMaximumLineLength()).isZero();
+        assertThat(configuration.getLargeFileMode()).isEqualTo(LargeFileMode.DOWNLOAD);
+    }
+
     private String getWorkspaceChild(final String expected) {
         return PATH_UTIL.createAbsolutePath(NORMALIZED, expected);
     }
@@ -0,0 +1,28 @@
+package io.jenkins.plugins.prism;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link PrismGrammars}.
+ */
+class PrismGrammarsTest {
+    @Test
+    void shouldReturnGrammarsWithDependencies() {
+        PrismGrammars grammars = new PrismGrammars("grammars-test.properties");
+
+        assertThat(grammars.getGrammars("language-java")).containsExactly("clike", "java");
+        assertThat(grammars.getGrammars("language-erb"))
+                .containsExactly("clike", "ruby", "markup", "markup-templating", "erb");
+        assertThat(grammars.getGrammars("language-empty")).isEmpty();
+        assertThat(grammars.getGrammars("language-unknown")).isEmpty();
+    }
+
+    @Test
+    void shouldFallBackToAutoloaderIfGrammarsHaveNotBeenResolved() {
+        PrismGrammars grammars = new PrismGrammars("does-not-exist.properties");
+
+        assertThat(grammars.getGrammars("language-java")).isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import io.jenkins.plugins.prism.Marker.MarkerBuilder;
+import io.jenkins.plugins.prism.RenderCache.Key;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link RenderCache}.
+ */
+class RenderCacheTest {
+    private static final String HTML = "<pre>0123456789</pre>"; // 21 characters = 42 bytes
+    private static final long ENTRY_SIZE = 2L * HTML.length();
+
+    @Test
+    void shouldRenderOnlyOnce() throws IOException {
+        RenderCache cache = new RenderCache(100 * ENTRY_SIZE);
+        Key key = createKey("digest", 1);
+
+        assertThat(render(cache, key, HTML)).isEqualTo(HTML);
+        assertThat(cache.getMissCount()).isOne();
+        assertThat(cache.getHitCount()).isZero();
+        assertThat(cache.getEntryCount()).isOne();
+        assertThat(cache.getSize()).isEqualTo(ENTRY_SIZE);
+
+        assertThat(render(cache, createKey("digest", 1), "not rendered")).isEqualTo(HTML);
+        assertThat(cache.getMissCount()).isOne();
+        assertThat(cache.getHitCount()).isOne();
+
+        assertThat(render(cache, createKey("digest", 2), "other marker")).isEqualTo("other marker");
+        assertThat(render(cache, createKey("other", 1), "other content")).isEqualTo("other content");
+        assertThat(cache.getMissCount()).isEqualTo(3);
+        assertThat(cache.getEntryCount()).isEqualTo(3);
+
+        cache.clear();
+        assertThat(cache.getEntryCount()).isZero();
+        assertThat(cache.getSize()).isZero();
+    }
+
+    @Test
+    void shouldCacheLocalizedHtmlPerLocale() throws IOException {
+        RenderCache cache = new RenderCache(100 * ENTRY_SIZE);
+
+        assertThat(render(cache, createKey("digest", 1, Locale.ENGLISH), "Load more")).isEqualTo("Load more");
+        assertThat(render(cache, createKey("digest", 1, Locale.GERMAN), "Mehr laden")).isEqualTo("Mehr laden");
+        assertThat(render(cache, createKey("digest", 1, Locale.ENGLISH), "not rendered")).isEqualTo("Load more");
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getHitCount()).isOne();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntries() throws IOException {
+        RenderCache cache = new RenderCache(4 * ENTRY_SIZE);
+
+        render(cache, createKey("first", 1), HTML);
+        render(cache, createKey("second", 1), HTML);
+        render(cache, createKey("third", 1), HTML);
+        render(cache, createKey("fourth", 1), HTML);
+        render(cache, createKey("first", 1), "not rendered");
+        assertThat(cache.getHitCount()).isOne();
+
+        render(cache, createKey("fifth", 1), HTML);
+
+        assertThat(cache.getEntryCount()).isEqualTo(4);
+        assertThat(render(cache, createKey("first", 1), "evicted")).isEqualTo(HTML);
+        assertThat(render(cache, createKey("second", 1), "evicted")).isEqualTo("evicted");
+
+        cache.setMaximumSize(ENTRY_SIZE * 2);
+        assertThat(cache.getEntryCount()).isEqualTo(2);
+        assertThat(cache.getSize()).isLessThanOrEqualTo(2 * ENTRY_SIZE);
+    }
+
+    @Test
+    void shouldNotCacheLargeEntries() throws IOException {
+        RenderCache cache = new RenderCache(3 * ENTRY_SIZE);
+
+        assertThat(render(cache, createKey("digest", 1), HTML)).isEqualTo(HTML);
+        assertThat(cache.getEntryCount()).isZero();
+
+        cache.setMaximumSize(0);
+        render(cache, createKey("digest", 1), "disabled");
+        assertThat(cache.getEntryCount()).isZero();
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    private Key createKey(final String digest, final int line) {
+        return createKey(digest, line, Locale.ENGLISH);
+    }
+
+    private Key createKey(final String digest, final int line, final Locale locale) {
+        return new Key(digest, List.of(new MarkerBuilder().withLineStart(line).build()), "language-java",
+                RenderOptions.DEFAULT, locale);
+    }
+
+    private String render(final RenderCache cache, final Key key, final String html) throws IOException {
+        StringWriter writer = new StringWriter();
+        cache.render(key, output -> output.write(html), writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package io.jenkins.plugins.prism;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link SourceCodeViewModel}.
+ */
+class SourceCodeViewModelTest {
+    @Test
+    void shouldCreateContentDispositionForPlainFileName() {
+        assertThat(SourceCodeViewModel.createContentDisposition("Main.java"))
+                .isEqualTo("attachment; filename=\"Main.java\"; filename*=UTF-8''Main.java");
+    }
+
+    @Test
+    void shouldEncodeSpecialCharactersOfFileName() {
+        assertThat(SourceCodeViewModel.createContentDisposition("Grüße \"a\"\\b*.java"))
+                .isEqualTo("attachment; filename=\"Gr__e _a__b*.java\"; "
+                        + "filename*=UTF-8''Gr%C3%BC%C3%9Fe%20%22a%22%5Cb%2A.java");
+    }
+
+    @Test
+    void shouldNotSplitHeaderAtLineBreaks() {
+        assertThat(SourceCodeViewModel.createContentDisposition("evil\r\nSet-Cookie: a=b.java"))
+                .doesNotContain("\r", "\n")
+                .startsWith("attachment; filename=\"evil__Set-Cookie: a=b.java\"; ")
+                .endsWith("filename*=UTF-8''evil%0D%0ASet-Cookie%3A%20a%3Db.java");
+    }
+}
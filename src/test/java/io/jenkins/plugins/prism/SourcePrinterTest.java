@@ -1,14 +1,24 @@
 package io.jenkins.plugins.prism;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
-import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import edu.hm.hafner.util.ResourceTest;
 
 import io.jenkins.plugins.prism.Marker.MarkerBuilder;
+import io.jenkins.plugins.prism.RenderOptions.RenderOptionsBuilder;
 import io.jenkins.plugins.util.JenkinsFacade;
 
 import static org.assertj.core.api.Assertions.*;
@@ -60,8 +70,12 @@ class SourcePrinterTest extends ResourceTest {
     }
 
     private void assertThatCodeIsEqualToSourceText(final Document document) {
+        assertThatCodeIsEqualToSourceText(document, "format-java.txt");
+    }
+
+    private void assertThatCodeIsEqualToSourceText(final Document document, final String fileName) {
         Elements code = document.getElementsByTag("code");
-        assertThat(code.text()).isEqualToIgnoringWhitespace(toString("format-java.txt"));
+        assertThat(code.text()).isEqualToIgnoringWhitespace(toString(fileName));
     }
 
     @Test
@@ -112,6 +126,28 @@ class SourcePrinterTest extends ResourceTest {
                                 + "&lt;l:main-panel&gt;After&lt;script&gt;execute&lt;/script&gt; Text&lt;/l:main-panel&gt;");
     }
 
+    @Test
+    void shouldEscapeScriptsInCodeWithoutSanitizer() throws IOException {
+        Marker marker = new MarkerBuilder().withLineStart(2).withColumnStart(1).withColumnEnd(8).build();
+
+        SourcePrinter printer = new SourcePrinter();
+
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, Stream.of("</code></pre><script>alert('first')</script>",
+                        "<img src=x onerror=\"alert('second')\">",
+                        "'\"><svg onload=alert(3)>"),
+                List.of(marker), RenderOptions.DEFAULT, writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.select("code script, code img, code svg")).isEmpty();
+        assertThat(document.getElementsByTag("pre")).hasSize(1);
+        assertThat(document.getElementsByTag("code").eachText()).containsExactly(
+                "</code></pre><script>alert('first')</script>",
+                "<img src=x onerror=\"alert('second')\">",
+                "'\"><svg onload=alert(3)>");
+        assertThat(document.getElementsByClass("code-mark").text()).isEqualTo("<img src");
+    }
+
     @Test
     void shouldFilterTagsInMessageAndDescription() {
         MarkerBuilder builder = new MarkerBuilder();
@@ -157,7 +193,7 @@ class SourcePrinterTest extends ResourceTest {
     }
 
     @Test
-    void shouldNotMarkTheCodeIfStartLineAndEndLineAreDifferent() {
+    void shouldMarkTheColumnsOfMultiLineMarkers() {
         MarkerBuilder builder = new MarkerBuilder();
         Marker issue = builder.withLineStart(5)
                 .withColumnStart(11)
@@ -174,9 +210,9 @@ class SourcePrinterTest extends ResourceTest {
                 "<code class=\"language-clike line-numbers match-braces\">#include &lt;iostream&gt;\n"
                         + "</code>\n"
                         + "<code class=\"language-clike line-numbers highlight match-braces\">\n"
-                        + "int main(int argc, char**argv) {\n"
+                        + "<span class=\"code-mark\">int main(int argc, char**argv) {</span>\n"
                         + "\n"
-                        + "  int b = std::move(argc);\n"
+                        + "<span class=\"code-mark\">  int b = std::move(argc)</span>;\n"
                         + "</code>\n"
                         + "<code class=\"language-clike line-numbers match-braces\">\n"
                         + "  std::cout &lt;&lt; \"Hello, World!\" &lt;&lt; argc &lt;&lt; std::endl;\n"
@@ -186,6 +222,24 @@ class SourcePrinterTest extends ResourceTest {
         );
     }
 
+    @Test
+    void shouldMarkColumnsThatStartAndEndInTheMiddleOfDifferentLines() throws IOException {
+        Marker marker = new MarkerBuilder().withLineStart(3).withColumnStart(5)
+                .withLineEnd(5).withColumnEnd(7).build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(marker), RenderOptions.DEFAULT, writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThatCodeIsEqualToSourceText(document, "format-cpp.txt");
+        assertThat(document.getElementsByClass("highlight").html()).isEqualTo(
+                "int <span class=\"code-mark\">main(int argc, char**argv) {</span>\n"
+                        + "\n"
+                        + "<span class=\"code-mark\">  int b</span> = std::move(argc);");
+    }
+
     @Test
     void shouldAddBreakOnNewLine() {
         MarkerBuilder builder = new MarkerBuilder();
@@ -221,110 +275,503 @@ class SourcePrinterTest extends ResourceTest {
         assertThat(pre.text()).isEqualToIgnoringWhitespace(expectedFile);
     }
 
-    private JenkinsFacade createJenkinsFacade() {
-        JenkinsFacade jenkinsFacade = mock(JenkinsFacade.class);
-        when(jenkinsFacade.getImagePath(anyString())).thenReturn("/path/to/icon");
-        return jenkinsFacade;
+    @Test
+    void shouldStreamSourceCodeToWriter() throws IOException {
+        MarkerBuilder builder = new MarkerBuilder();
+        Marker issue = builder.withLineStart(5).withLineEnd(6).withTitle(MESSAGE).build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = spy(new StringWriter());
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), issue, writer);
+
+        verify(writer, atLeastOnce()).flush();
+        assertThat(writer.toString())
+                .startsWith("<pre><code class=\"language-clike line-numbers match-braces\">#include &lt;iostream&gt;\n")
+                .endsWith("</pre>")
+                .isEqualTo(printer.render(FILE_NAME, asStream("format-cpp.txt"), issue));
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.getElementsByClass("highlight").text())
+                .isEqualToIgnoringWhitespace("int b = std::move(argc);");
+        assertThat(document.getElementsByClass("analysis-warning-title").text())
+                .isEqualTo(MESSAGE);
     }
 
-    @Nested
-    class ColumnMarkerTest {
-        @Test
-        void withColumnStartZeroThenDontMark() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 0, 0))
-                    .contains("text that could be code");
-        }
+    @Test
+    void shouldRenderWindowAroundMarker() throws IOException {
+        MarkerBuilder builder = new MarkerBuilder();
+        Marker issue = builder.withLineStart(5).withTitle(MESSAGE).build();
 
-        @Test
-        void givenColumnStartAndColumnEndZeroThenMarkFromStartToLineEnd() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 6, 0))
-                    .contains("text OpEnMARKthat could be codeClOsEMARK");
-        }
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
 
-        @Test
-        void givenColumnStartAndColumnEndwithColumnEndPointingToLineEndThenMarkFromStartToLineEnd() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 6, 23))
-                    .contains("text OpEnMARKthat could be codeClOsEMARK");
-        }
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), issue,
+                new RenderOptionsBuilder().withContextLines(2).build(), writer);
 
-        @Test
-        void givenColumnStartAndColumnEndThenMarkFromColumnStartToColumnEnd() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 6, 10))
-                    .contains("text OpEnMARKthat ClOsEMARKcould be code");
-        }
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.getElementsByTag("pre").attr("data-start")).isEqualTo("3");
+        assertThat(document.getElementsByTag("code").html()).isEqualTo(
+                "int main(int argc, char**argv) {\n"
+                        + "int b = std::move(argc);\n"
+                        + "std::cout &lt;&lt; \"Hello, World!\" &lt;&lt; argc &lt;&lt; std::endl;");
+
+        Elements buttons = document.getElementsByClass("source-load-more");
+        assertThat(buttons).hasSize(2);
+        assertThat(buttons.get(0).attr("data-direction")).isEqualTo("above");
+        assertThat(buttons.get(0).attr("data-line")).isEqualTo("2");
+        assertThat(buttons.get(0).attr("data-count")).isEqualTo("2");
+        assertThat(buttons.get(1).attr("data-direction")).isEqualTo("below");
+        assertThat(buttons.get(1).attr("data-line")).isEqualTo("8");
+    }
 
-        @Test
-        void givenColumnStartAndColumnEndWithDifferenceOfOneThenMarkFromColumnStartToColumnEnd() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 6, 7))
-                    .contains("text OpEnMARKthClOsEMARKat could be code");
-        }
+    @Test
+    void shouldNotShowLoadMoreButtonsIfWindowContainsWholeFile() throws IOException {
+        MarkerBuilder builder = new MarkerBuilder();
+        Marker issue = builder.withLineStart(5).withTitle(MESSAGE).build();
 
-        @Test
-        void givenColumnStartAndColumnEndWithSameValueThenMarkOneCharacter() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 6, 6))
-                    .contains("text OpEnMARKtClOsEMARKhat could be code");
-        }
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
 
-        @Test
-        void givenAnEmptyTextThenMarkNothing() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("", 6, 6))
-                    .contains("");
-        }
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), issue,
+                new RenderOptionsBuilder().withContextLines(10).build(), writer);
 
-        @Test
-        void givenColumnStartWithValueOneThenMarkTheLineFromBegin() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 1, 6))
-                    .contains("OpEnMARKtext tClOsEMARKhat could be code");
-        }
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.getElementsByClass("source-load-more")).isEmpty();
+        assertThat(document.getElementsByTag("pre").hasAttr("data-start")).isFalse();
+        assertThatCodeIsEqualToSourceText(document, "format-cpp.txt");
+    }
 
-        @Test
-        void givenColumnStartWithValueOfTheLastCharacterThenMarkTheLastCharacter() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 23, 0))
-                    .contains("text that could be codOpEnMARKeClOsEMARK");
-        }
+    @Test
+    void shouldRenderRangeOfLines() throws IOException {
+        SourcePrinter printer = new SourcePrinter();
 
-        @Test
-        void givenColumnStartWithValueOfBehindColumnEndThenDoNotMark() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 23, 10))
-                    .contains("text that could be code");
-        }
+        StringWriter writer = new StringWriter();
+        printer.renderLines("file.cpp", asStream("format-cpp.txt"), 7, 8, writer);
 
-        @Test
-        void givenColumnStartIsAfterLineEndThenDoNotMark() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 30, 10))
-                    .contains("text that could be code");
-        }
+        assertThat(writer.toString()).isEqualTo(
+                "<code class=\"language-cpp line-numbers match-braces\" data-from=\"7\" data-to=\"8\" data-more=\"true\">"
+                        + "  std::cout &lt;&lt; &quot;Hello, World!&quot; &lt;&lt; argc &lt;&lt; std::endl;\n"
+                        + "  return 0;\n"
+                        + "</code>");
 
-        @Test
-        void givenColumnStartIsNegativeThenDoNotMark() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", -1, 10))
-                    .contains("text that could be code");
-        }
+        StringWriter end = new StringWriter();
+        printer.renderLines("file.cpp", asStream("format-cpp.txt"), 8, 100, end);
+
+        assertThat(end.toString()).contains("data-from=\"8\" data-to=\"9\" data-more=\"false\"");
+    }
+
+    @Test
+    void shouldRenderRangeOfLinesAsJson() throws IOException {
+        SourcePrinter printer = new SourcePrinter();
+
+        StringWriter writer = new StringWriter();
+        printer.renderLinesAsJson("file.cpp", asStream("format-cpp.txt"), 7, 8, RenderOptions.DEFAULT, writer);
+
+        assertThat(writer.toString()).isEqualTo(
+                "{\"lines\":[\"  std::cout &lt;&lt; &quot;Hello, World!&quot; &lt;&lt; argc &lt;&lt; std::endl;\","
+                        + "\"  return 0;\"],"
+                        + "\"from\":7,\"to\":8,\"more\":true,\"classes\":\"language-cpp line-numbers match-braces\"}");
+
+        StringWriter end = new StringWriter();
+        printer.renderLinesAsJson("file.cpp", asStream("format-cpp.txt"), 8, 100, RenderOptions.DEFAULT, end);
+        assertThat(end.toString()).contains("\"from\":8,\"to\":9,\"more\":false");
+
+        StringWriter empty = new StringWriter();
+        printer.renderLinesAsJson("file.cpp", asStream("format-cpp.txt"), 100, 200, RenderOptions.DEFAULT, empty);
+        assertThat(empty.toString()).startsWith("{\"lines\":[],\"from\":100,\"to\":9,\"more\":false");
+    }
+
+    @Test
+    void shouldRenderRangeOfLinesFromPositionedStream() throws IOException {
+        SourcePrinter printer = new SourcePrinter();
+        RenderOptions options = new RenderOptionsBuilder().withServerSideLineNumbers(true).build();
+
+        StringWriter html = new StringWriter();
+        printer.renderLines("file.txt", Stream.of("tenth", "eleventh", "twelfth"), 10, 10, 11, options, html);
 
-        @Test
-        void givenColumnEndIsNegativeThenDoNotMark() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 1, -1))
-                    .contains("text that could be code");
+        assertThat(html.toString()).startsWith("<code class=\"language-clike match-braces\" "
+                + "data-from=\"10\" data-to=\"11\" data-more=\"true\">");
+        assertThat(Jsoup.parse(html.toString()).getElementsByClass("source-line").eachAttr("id"))
+                .containsExactly("L10", "L11");
+
+        StringWriter json = new StringWriter();
+        printer.renderLinesAsJson("file.txt", Stream.of("tenth", "eleventh", "twelfth"), 10, 11, 20, options, json);
+
+        assertThat(json.toString()).contains("id=\\\"L11\\\"", "id=\\\"L12\\\"")
+                .doesNotContain("L10").contains("\"from\":11,\"to\":12,\"more\":false");
+    }
+
+    @Test
+    void shouldRenderRangeOfLinesFromStoredFile(@TempDir final Path folder) throws IOException {
+        Path file = folder.resolve("file.cpp");
+        Files.copy(getResourceAsFile("format-cpp.txt"), file);
+        SourcePrinter printer = new SourcePrinter();
+
+        StringWriter html = new StringWriter();
+        try (WindowedLineReader lines = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            printer.renderLines("file.cpp", lines, 7, 8, RenderOptions.DEFAULT, html);
+        }
+        StringWriter streamed = new StringWriter();
+        printer.renderLines("file.cpp", asStream("format-cpp.txt"), 7, 8, RenderOptions.DEFAULT, streamed);
+        assertThat(html.toString()).isEqualTo(streamed.toString());
+
+        StringWriter json = new StringWriter();
+        try (WindowedLineReader lines = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            lines.seek(LineIndex.create(file), 8);
+            printer.renderLinesAsJson("file.cpp", lines, 8, 100, RenderOptions.DEFAULT, json);
         }
+        StringWriter streamedJson = new StringWriter();
+        printer.renderLinesAsJson("file.cpp", asStream("format-cpp.txt"), 8, 100, RenderOptions.DEFAULT,
+                streamedJson);
+        assertThat(json.toString()).isEqualTo(streamedJson.toString()).contains("\"to\":9,\"more\":false");
+    }
+
+    @Test
+    void shouldEscapeLinesForJson() throws IOException {
+        SourcePrinter printer = new SourcePrinter();
+
+        StringWriter writer = new StringWriter();
+        printer.renderLinesAsJson("file.txt", Stream.of("a\\b\tc", "\u2028"), 1, 2,
+                new RenderOptionsBuilder().withServerSideLineNumbers(true).build(), writer);
+
+        assertThat(writer.toString()).startsWith("{\"lines\":["
+                + "\"<a class=\\\"source-line\\\" id=\\\"L1\\\" href=\\\"#L1\\\" data-number=\\\"1\\\"><\\/a>"
+                + "a\\\\b\\tc\","
+                + "\"<a class=\\\"source-line\\\" id=\\\"L2\\\" href=\\\"#L2\\\" data-number=\\\"2\\\"><\\/a>"
+                + "\\u2028\"]");
+    }
+
+    @Test
+    void shouldRenderSeveralMarkersInSinglePass() throws IOException {
+        Marker first = new MarkerBuilder().withLineStart(3).withTitle("First").build();
+        Marker nested = new MarkerBuilder().withLineStart(5).withColumnStart(11).withColumnEnd(25)
+                .withTitle("Nested").withDescription("Nested Description").build();
+        Marker overlapping = new MarkerBuilder().withLineStart(5).withLineEnd(7)
+                .withTitle("Overlapping").withDescription("Overlapping Description").build();
+        Marker last = new MarkerBuilder().withLineStart(9).withTitle("Last").build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(last, nested, first, overlapping),
+                RenderOptions.DEFAULT, writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThatCodeIsEqualToSourceText(document, "format-cpp.txt");
+
+        Elements highlights = document.getElementsByClass("highlight");
+        assertThat(highlights).hasSize(3);
+        assertThat(highlights.get(0).text()).isEqualTo("int main(int argc, char**argv) {");
+        assertThat(highlights.get(1).html()).isEqualTo(
+                "int b = <span class=\"code-mark\">std::move(argc)</span>;\n"
+                        + "\n"
+                        + "  std::cout &lt;&lt; \"Hello, World!\" &lt;&lt; argc &lt;&lt; std::endl;");
+        assertThat(highlights.get(2).text()).isEqualTo("}");
 
-        @Test
-        void givenColumnEndIsAfterLineEndThenDoNotMark() {
-            assertThat(new SourcePrinter.ColumnMarker("MARK")
-                    .markColumns("text that could be code", 1, 24))
-                    .contains("text that could be code");
+        assertThat(document.getElementsByClass("analysis-warning-title").eachText())
+                .containsExactly("First", "Overlapping", "Nested", "Last");
+        assertThat(document.getElementsByClass("analysis-detail").eachAttr("id"))
+                .containsExactly("analysis-description-1", "analysis-description-2");
+    }
+
+    @Test
+    void shouldMarkSeveralColumnRangesInTheSameLine() throws IOException {
+        Marker type = new MarkerBuilder().withLineStart(5).withColumnStart(3).withColumnEnd(5).build();
+        Marker call = new MarkerBuilder().withLineStart(5).withColumnStart(11).withColumnEnd(19).build();
+        Marker overlapping = new MarkerBuilder().withLineStart(5).withColumnStart(16).withColumnEnd(25).build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(overlapping, type, call),
+                RenderOptions.DEFAULT, writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.getElementsByClass("highlight").html()).isEqualTo(
+                "<span class=\"code-mark\">int</span> b = <span class=\"code-mark\">std::move(argc)</span>;");
+    }
+
+    @Test
+    void shouldRenderSingleCodeBlockWithLineHighlightRanges() throws IOException {
+        Marker first = new MarkerBuilder().withLineStart(3).withTitle("First").build();
+        Marker nested = new MarkerBuilder().withLineStart(5).withColumnStart(11).withColumnEnd(25)
+                .withTitle("Nested").build();
+        Marker overlapping = new MarkerBuilder().withLineStart(5).withLineEnd(7).withTitle("Overlapping").build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(nested, first, overlapping),
+                new RenderOptionsBuilder().withSingleCodeBlock(true).build(), writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.getElementsByTag("code")).hasSize(1);
+        assertThat(document.getElementsByClass("highlight")).isEmpty();
+        assertThatCodeIsEqualToSourceText(document, "format-cpp.txt");
+
+        Elements pre = document.getElementsByTag("pre");
+        assertThat(pre.attr("data-line")).isEqualTo("3,5-7");
+        assertThat(pre.hasAttr("data-start")).isFalse();
+        assertThat(document.getElementsByClass("code-mark").text()).isEqualTo("std::move(argc)");
+
+        Elements overlays = document.select(".source-code-block > .analysis-overlay");
+        assertThat(overlays.eachAttr("data-line")).containsExactly("3", "5");
+        assertThat(overlays.get(1).getElementsByClass("analysis-warning-title").eachText())
+                .containsExactly("Overlapping", "Nested");
+    }
+
+    @Test
+    void shouldRenderWindowAsSingleCodeBlock() throws IOException {
+        Marker issue = new MarkerBuilder().withLineStart(5).withTitle(MESSAGE).build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(issue),
+                new RenderOptionsBuilder().withContextLines(2).withSingleCodeBlock(true).build(), writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        Elements pre = document.getElementsByTag("pre");
+        assertThat(pre.attr("data-line")).isEqualTo("5");
+        assertThat(pre.attr("data-start")).isEqualTo("3");
+        assertThat(pre.attr("data-line-offset")).isEqualTo("2");
+        assertThat(document.getElementsByTag("code").text()).isEqualToIgnoringWhitespace(
+                "int main(int argc, char**argv) {"
+                        + "int b = std::move(argc);"
+                        + "std::cout << \"Hello, World!\" << argc << std::endl;");
+        assertThat(document.getElementsByClass("source-load-more")).hasSize(2);
+    }
+
+    @Test
+    void shouldRenderWindowForVirtualScrolling() throws IOException {
+        Marker issue = new MarkerBuilder().withLineStart(5).withTitle(MESSAGE).build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(issue),
+                new RenderOptionsBuilder().withContextLines(1).withVirtualScrolling(true).build(), writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.select(".source-virtual > .source-code-block > pre")).hasSize(1);
+        assertThat(document.getElementsByTag("pre").attr("data-start")).isEqualTo("4");
+        assertThat(document.getElementsByTag("code").text()).isEqualToIgnoringWhitespace(
+                "int b = std::move(argc);");
+        assertThat(document.getElementsByClass("source-virtual-lines").attr("data-total-lines")).isEqualTo("9");
+        assertThat(document.getElementsByClass("source-load-more")).isEmpty();
+        assertThat(document.getElementsByClass("analysis-overlay").attr("data-line")).isEqualTo("5");
+    }
+
+    @Test
+    void shouldUseDefaultWindowForVirtualScrolling() {
+        RenderOptions options = new RenderOptionsBuilder().withVirtualScrolling(true).build();
+
+        assertThat(options.isWindowed()).isTrue();
+        assertThat(options.isSingleCodeBlock()).isTrue();
+        assertThat(options.getFirstLine(500)).isEqualTo(500 - RenderOptions.VIRTUAL_CONTEXT_LINES);
+        assertThat(options.getLastLine(500)).isEqualTo(500 + RenderOptions.VIRTUAL_CONTEXT_LINES);
+    }
+
+    @Test
+    void shouldSelectClassesOfPluginProfile() throws IOException {
+        Marker marker = new MarkerBuilder().withLineStart(5).build();
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter lean = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(marker),
+                new RenderOptionsBuilder().withPluginProfile(PluginProfile.LEAN).build(), lean);
+
+        assertThat(Jsoup.parse(lean.toString()).getElementsByTag("code").eachAttr("class")).containsExactly(
+                "language-clike line-numbers", "language-clike line-numbers highlight", "language-clike line-numbers");
+
+        StringWriter minimal = new StringWriter();
+        printer.render(FILE_NAME, asStream("format-cpp.txt"), List.of(marker),
+                new RenderOptionsBuilder().withPluginProfile(PluginProfile.MINIMAL).build(), minimal);
+
+        assertThat(Jsoup.parse(minimal.toString()).getElementsByTag("code").eachAttr("class")).containsExactly(
+                "language-clike", "language-clike highlight", "language-clike");
+    }
+
+    @Test
+    void shouldRenderLineNumbersOnServer() throws IOException {
+        Marker marker = new MarkerBuilder().withLineStart(2).withColumnStart(1).withColumnEnd(3).build();
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+        RenderOptions options = new RenderOptionsBuilder().withServerSideLineNumbers(true).build();
+
+        StringWriter writer = new StringWriter();
+        printer.render("file.txt", Stream.of("first", "second", "third"), List.of(marker), options, writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThat(document.getElementsByTag("code").eachAttr("class")).containsExactly(
+                "language-clike match-braces", "language-clike match-braces highlight", "language-clike match-braces");
+        assertThat(document.getElementsByClass("source-line").eachAttr("id")).containsExactly("L1", "L2", "L3");
+        assertThat(document.getElementById("L2").attr("href")).isEqualTo("#L2");
+        assertThat(document.getElementById("L2").attr("data-number")).isEqualTo("2");
+        assertThat(document.getElementsByClass("source-line").text()).isBlank();
+        assertThat(writer.toString()).contains(
+                "<a class=\"source-line\" id=\"L2\" href=\"#L2\" data-number=\"2\"></a>"
+                        + "<span class='code-mark'>sec</span>ond\n");
+
+        StringWriter lines = new StringWriter();
+        printer.renderLines("file.txt", Stream.of("first", "second", "third"), 2, 3, options, lines);
+        assertThat(Jsoup.parse(lines.toString()).getElementsByClass("source-line").eachAttr("id"))
+                .containsExactly("L2", "L3");
+
+        StringWriter minimal = new StringWriter();
+        printer.render("file.txt", Stream.of("first"), List.of(), new RenderOptionsBuilder()
+                .withServerSideLineNumbers(true).withPluginProfile(PluginProfile.MINIMAL).build(), minimal);
+        assertThat(Jsoup.parse(minimal.toString()).getElementsByClass("source-line")).isEmpty();
+    }
+
+    @Test
+    void shouldWriteClassesOnlyOnceInCompactOutput() throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<Marker> markers = new ArrayList<>();
+        for (int line = 1; line <= 10_000; line++) {
+            lines.add("int value" + line + " = " + line + ";");
+            if (line % 100 == 0) {
+                markers.add(new MarkerBuilder().withLineStart(line).withTitle("Marker " + line).build());
+            }
         }
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter regular = new StringWriter();
+        printer.render(FILE_NAME, lines.stream(), markers, RenderOptions.DEFAULT, regular);
+        StringWriter compact = new StringWriter();
+        printer.render(FILE_NAME, lines.stream(), markers,
+                new RenderOptionsBuilder().withCompactOutput(true).build(), compact);
+
+        Document document = Jsoup.parse(compact.toString());
+        assertThat(document.getElementsByTag("pre").eachAttr("class"))
+                .containsExactly("language-clike line-numbers match-braces");
+        assertThat(document.getElementsByTag("code")).hasSize(2 * markers.size() + 1);
+        assertThat(document.select("code[class]").eachAttr("class")).hasSize(markers.size()).containsOnly("highlight");
+        assertThat(document.getElementsByTag("pre").text())
+                .isEqualTo(Jsoup.parse(regular.toString()).getElementsByTag("pre").text());
+
+        int unmarkedClass = " class=\"language-clike line-numbers match-braces\"".length();
+        int markedClass = " class=\"language-clike line-numbers highlight match-braces\"".length()
+                - " class=\"highlight\"".length();
+        int savedBytes = regular.toString().length() - compact.toString().length();
+        assertThat(savedBytes).isEqualTo((markers.size() + 1) * unmarkedClass + markers.size() * markedClass
+                - unmarkedClass); // the classes are written once for the pre element
+    }
+
+    @Test
+    void shouldRenderRangeOfLinesWithoutClassesInCompactOutput() throws IOException {
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.renderLines(FILE_NAME, Stream.of("first", "second"), 1, 2,
+                new RenderOptionsBuilder().withCompactOutput(true).build(), writer);
+
+        assertThat(writer.toString()).isEqualTo(
+                "<code data-from=\"1\" data-to=\"2\" data-more=\"false\">first\nsecond\n</code>");
+    }
+
+    @Test
+    void shouldRenderPlainTextWithoutLanguageClass() throws IOException {
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.renderPlainText(Stream.of("<script>alert(1)</script>", "second"), writer);
+
+        assertThat(writer.toString()).isEqualTo("<pre class=\"source-plain-text\"><code>"
+                + "&lt;script&gt;alert(1)&lt;/script&gt;\nsecond\n</code></pre>");
+    }
+
+    @Test
+    void shouldRenderWindowOfLongLines() throws IOException {
+        String minified = "a".repeat(5000) + "<marked>" + "b".repeat(5000);
+        Marker marker = new MarkerBuilder().withLineStart(2).withColumnStart(5001).withColumnEnd(5008).build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render("file.js", Stream.of("x".repeat(3000), minified, "short"), List.of(marker),
+                new RenderOptionsBuilder().withServerSideHighlighting(true).build(), writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        Elements code = document.getElementsByTag("code");
+        assertThat(code.get(0).text()).startsWith("x".repeat(SourcePrinter.LONG_LINE_CONTEXT) + "\u2026")
+                .hasSize(SourcePrinter.LONG_LINE_CONTEXT + 1);
+        assertThat(document.getElementsByClass("code-mark").text()).isEqualTo("<marked>");
+        assertThat(document.getElementsByClass("highlight").text()).isEqualTo("\u2026"
+                + "a".repeat(SourcePrinter.LONG_LINE_CONTEXT) + "<marked>" + "b".repeat(SourcePrinter.LONG_LINE_CONTEXT)
+                + "\u2026");
+        assertThat(document.getElementsByClass("long-line-omission").eachAttr("title"))
+                .map(title -> title.replaceAll("[^0-9a-z ]", "")) // ignore the grouping separator of the locale
+                .containsExactly(
+                "2800 characters omitted", "4800 characters omitted", "4800 characters omitted");
+        assertThat(document.getElementsByClass("token")).isEmpty();
+        assertThat(code.get(2).text()).isEqualTo("short");
+    }
+
+    @Test
+    void shouldHighlightSourceCodeOnServer() throws IOException {
+        Marker marker = new MarkerBuilder().withLineStart(8).withTitle(MESSAGE).build();
+
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade());
+
+        StringWriter writer = new StringWriter();
+        printer.render("file.cpp", asStream("format-cpp.txt"), List.of(marker),
+                new RenderOptionsBuilder().withServerSideHighlighting(true).build(), writer);
+
+        Document document = Jsoup.parse(writer.toString());
+        assertThatCodeIsEqualToSourceText(document, "format-cpp.txt");
+        assertThat(document.getElementsByTag("code").eachAttr("class")).containsExactly(
+                "language-cpp line-numbers match-braces server-highlighted",
+                "language-cpp line-numbers highlight match-braces server-highlighted",
+                "language-cpp line-numbers match-braces server-highlighted");
+        assertThat(document.getElementsByClass("highlight").html()).isEqualTo(
+                "<span class=\"token keyword\">return</span> <span class=\"token number\">0</span>"
+                        + "<span class=\"token punctuation\">;</span>");
+        assertThat(document.select(".token.macro").text()).isEqualTo("#include <iostream>");
+    }
+
+    @Test
+    void shouldNotHighlightUnsupportedLanguagesOnServer() throws IOException {
+        SourcePrinter printer = new SourcePrinter();
+
+        StringWriter writer = new StringWriter();
+        printer.renderLines("file.css", asStream("format-cpp.txt"), 1, 2,
+                new RenderOptionsBuilder().withServerSideHighlighting(true).build(), writer);
+
+        assertThat(writer.toString()).isEqualTo(
+                "<code class=\"language-css line-numbers match-braces\" data-from=\"1\" data-to=\"2\" data-more=\"true\">"
+                        + "#include &lt;iostream&gt;\n\n</code>");
+    }
+
+    @Test
+    void shouldRenderCachedSourceCodeOnlyOnce() throws IOException {
+        Marker marker = new MarkerBuilder().withLineStart(5).withTitle(MESSAGE).build();
+
+        RenderCache cache = new RenderCache(RenderCache.DEFAULT_MAXIMUM_SIZE);
+        SourcePrinter printer = new SourcePrinter(createJenkinsFacade(), cache);
+
+        StringWriter first = new StringWriter();
+        printer.render("file.cpp", "digest", asStream("format-cpp.txt"), List.of(marker), RenderOptions.DEFAULT,
+                first);
+        assertThatCodeIsEqualToSourceText(Jsoup.parse(first.toString()), "format-cpp.txt");
+
+        StringWriter second = new StringWriter();
+        printer.render("file.cpp", "digest", Stream.of("not read"), List.of(marker), RenderOptions.DEFAULT,
+                second);
+        assertThat(second.toString()).isEqualTo(first.toString());
+        assertThat(cache.getHitCount()).isOne();
+        assertThat(cache.getMissCount()).isOne();
+
+        StringWriter windowed = new StringWriter();
+        printer.render("file.cpp", "digest", asStream("format-cpp.txt"), List.of(marker),
+                new RenderOptionsBuilder().withContextLines(1).build(), windowed);
+        assertThat(windowed.toString()).isNotEqualTo(first.toString());
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    private JenkinsFacade createJenkinsFacade() {
+        JenkinsFacade jenkinsFacade = mock(JenkinsFacade.class);
+        when(jenkinsFacade.getImagePath(anyString())).thenReturn("/path/to/icon");
+        return jenkinsFacade;
     }
 }
@@ -0,0 +1,98 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link SyntaxHighlighter}.
+ */
+class SyntaxHighlighterTest {
+    private static final String JAVA = "language-java";
+
+    @Test
+    void shouldSupportSelectedLanguages() {
+        assertThat(SyntaxHighlighter.isSupported(JAVA)).isTrue();
+        assertThat(SyntaxHighlighter.isSupported("language-cpp")).isTrue();
+        assertThat(SyntaxHighlighter.isSupported("language-css")).isFalse();
+        assertThat(SyntaxHighlighter.create("language-css")).isEmpty();
+    }
+
+    @Test
+    void shouldHighlightJava() throws IOException {
+        assertThat(highlight(JAVA, "public int size = compute(\"a<b\", 10); // done"))
+                .isEqualTo("<span class=\"token keyword\">public</span> "
+                        + "<span class=\"token keyword\">int</span> size "
+                        + "<span class=\"token operator\">=</span> "
+                        + "<span class=\"token function\">compute</span>"
+                        + "<span class=\"token punctuation\">(</span>"
+                        + "<span class=\"token string\">&quot;a&lt;b&quot;</span>"
+                        + "<span class=\"token punctuation\">,</span> "
+                        + "<span class=\"token number\">10</span>"
+                        + "<span class=\"token punctuation\">)</span>"
+                        + "<span class=\"token punctuation\">;</span> "
+                        + "<span class=\"token comment\">// done</span>");
+    }
+
+    @Test
+    void shouldHighlightBlockCommentsThatSpanSeveralLines() throws IOException {
+        SyntaxHighlighter highlighter = SyntaxHighlighter.create(JAVA).orElseThrow();
+
+        assertThat(highlight(highlighter, "int a; /* start")).isEqualTo(
+                "<span class=\"token keyword\">int</span> a<span class=\"token punctuation\">;</span> "
+                        + "<span class=\"token comment\">/* start</span>");
+        assertThat(highlight(highlighter, "   public <b>"))
+                .isEqualTo("<span class=\"token comment\">   public &lt;b&gt;</span>");
+        assertThat(highlight(highlighter, " end */ return"))
+                .isEqualTo("<span class=\"token comment\"> end */</span> <span class=\"token keyword\">return</span>");
+    }
+
+    @Test
+    void shouldTrackStateOfSkippedLines() throws IOException {
+        SyntaxHighlighter highlighter = SyntaxHighlighter.create(JAVA).orElseThrow();
+
+        highlighter.skip("/**");
+        assertThat(highlight(highlighter, " * return")).isEqualTo("<span class=\"token comment\"> * return</span>");
+        highlighter.skip(" */");
+        assertThat(highlight(highlighter, "return")).isEqualTo("<span class=\"token keyword\">return</span>");
+    }
+
+    @Test
+    void shouldHighlightNestedTokensOfMarkup() throws IOException {
+        assertThat(highlight("language-markup", "<a href=\"x\">&amp;</a>"))
+                .isEqualTo("<span class=\"token tag\"><span class=\"token tag\">&lt;a</span> "
+                        + "<span class=\"token attr-name\">href</span>"
+                        + "<span class=\"token attr-value\">=&quot;x&quot;</span>"
+                        + "<span class=\"token punctuation\">&gt;</span></span>"
+                        + "<span class=\"token entity named-entity\">&amp;amp;</span>"
+                        + "<span class=\"token tag\"><span class=\"token tag\">&lt;/a</span>"
+                        + "<span class=\"token punctuation\">&gt;</span></span>");
+    }
+
+    @Test
+    void shouldEscapeTextOutsideOfTokens() throws IOException {
+        assertThat(highlight("language-json", "{\"key\": \"<script>\"}"))
+                .isEqualTo("<span class=\"token punctuation\">{</span>"
+                        + "<span class=\"token property\">&quot;key&quot;</span>"
+                        + "<span class=\"token operator\">:</span> "
+                        + "<span class=\"token string\">&quot;&lt;script&gt;&quot;</span>"
+                        + "<span class=\"token punctuation\">}</span>");
+        assertThat(highlight("language-python", "x = 'ä' # <!-- -->"))
+                .isEqualTo("x <span class=\"token operator\">=</span> "
+                        + "<span class=\"token string\">&#39;ä&#39;</span> "
+                        + "<span class=\"token comment\"># &lt;!-- --&gt;</span>");
+    }
+
+    private String highlight(final String language, final String line) throws IOException {
+        return highlight(SyntaxHighlighter.create(language).orElseThrow(), line);
+    }
+
+    private String highlight(final SyntaxHighlighter highlighter, final String line) throws IOException {
+        StringWriter writer = new StringWriter();
+        highlighter.highlight(line, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package io.jenkins.plugins.prism;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link WindowedLineReader}.
+ */
+class WindowedLineReaderTest {
+    @TempDir
+    private Path folder;
+
+    @Test
+    void shouldReadAllLinesLikeBufferedReader() throws IOException {
+        Path file = write("first\nsecond\r\nthird\r\rfifth\n", StandardCharsets.UTF_8);
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            assertThat(readAll(reader)).containsExactly("first", "second", "third", "", "fifth");
+            assertThat(reader.getLine()).isEqualTo(5);
+            assertThat(reader.hasNext()).isFalse();
+            assertThatExceptionOfType(NoSuchElementException.class).isThrownBy(reader::next);
+        }
+    }
+
+    @Test
+    void shouldReadEmptyFile() throws IOException {
+        try (WindowedLineReader reader = new WindowedLineReader(write("", StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8, 0)) {
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    void shouldReuseBufferForAllLines() throws IOException {
+        Path file = write("first\nsecond", StandardCharsets.UTF_8);
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            CharSequence first = reader.next();
+            assertThat(first.toString()).isEqualTo("first");
+
+            CharSequence second = reader.next();
+            assertThat(second).isSameAs(first);
+            assertThat(second.toString()).isEqualTo("second");
+        }
+    }
+
+    @Test
+    void shouldDecodeCharset() throws IOException {
+        Path file = write("Grüße\n€ und ß", StandardCharsets.UTF_8);
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            assertThat(readAll(reader)).containsExactly("Grüße", "€ und ß");
+        }
+
+        Path latin = write("Grüße\nß", StandardCharsets.ISO_8859_1);
+        try (WindowedLineReader reader = new WindowedLineReader(latin, StandardCharsets.ISO_8859_1, 0)) {
+            assertThat(readAll(reader)).containsExactly("Grüße", "ß");
+        }
+    }
+
+    @Test
+    void shouldReplaceMalformedInput() throws IOException {
+        Path file = folder.resolve("Malformed.java");
+        Files.write(file, new byte[] {'a', (byte) 0xC3, '\n', 'b'});
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            assertThat(readAll(reader)).containsExactly("a\uFFFD", "b");
+        }
+    }
+
+    @Test
+    void shouldGrowBufferForLongLines() throws IOException {
+        String longLine = "x".repeat(10_000);
+        Path file = write("short\n" + longLine + "\nlast", StandardCharsets.UTF_8);
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            assertThat(readAll(reader)).containsExactly("short", longLine, "last");
+        }
+    }
+
+    @Test
+    void shouldTruncateLongLines() throws IOException {
+        Path file = write("short\n" + "x".repeat(10_000) + "\nlast", StandardCharsets.UTF_8);
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 1000)) {
+            assertThat(readAll(reader)).containsExactly("short", "x".repeat(1000), "last");
+        }
+    }
+
+    @Test
+    void shouldSkipLinesAndSeekUsingIndex() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int line = 1; line <= 1000; line++) {
+            content.append("line ").append(line).append('\n');
+        }
+        Path file = write(content.toString(), StandardCharsets.UTF_8);
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            reader.skipLines(99);
+            assertThat(reader.getLine()).isEqualTo(99);
+            assertThat(reader.next().toString()).isEqualTo("line 100");
+
+            reader.seek(LineIndex.create(file), 500);
+            assertThat(reader.getLine()).isEqualTo(499);
+            assertThat(reader.next().toString()).isEqualTo("line 500");
+
+            reader.skipLines(1000);
+            assertThat(reader.getLine()).isEqualTo(1000);
+            assertThat(reader.hasNext()).isFalse();
+
+            reader.seek(LineIndex.create(file), 1001);
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    void shouldReadLinesAcrossWindowBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int line = 1; line <= 200; line++) {
+            String text = "Grüße € " + "ä".repeat(line % 23) + " 😀 " + line;
+            expected.add(text);
+            content.append(text).append(line % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write(content.toString(), StandardCharsets.UTF_8);
+
+        for (int windowSize = 16; windowSize <= 64; windowSize += 7) {
+            try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0, windowSize)) {
+                assertThat(readAll(reader)).containsExactlyElementsOf(expected);
+
+                reader.seek(LineIndex.create(file), 150);
+                assertThat(reader.next().toString()).isEqualTo(expected.get(149));
+                reader.skipLines(10);
+                assertThat(reader.next().toString()).isEqualTo(expected.get(160));
+            }
+        }
+    }
+
+    @Test
+    void shouldTruncateLongLinesAcrossWindowBoundaries() throws IOException {
+        Path file = write("€".repeat(100) + "\r\nlast", StandardCharsets.UTF_8);
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 30, 16)) {
+            assertThat(readAll(reader)).containsExactly("€".repeat(30), "last");
+        }
+    }
+
+    @Test
+    void shouldReleaseFileWhenClosed() throws IOException {
+        Path file = write("first\nsecond", StandardCharsets.UTF_8);
+
+        try (WindowedLineReader reader = new WindowedLineReader(file, StandardCharsets.UTF_8, 0)) {
+            assertThat(reader.next().toString()).isEqualTo("first");
+        }
+
+        Files.delete(file);
+        assertThat(file).doesNotExist();
+    }
+
+    private Path write(final String content, final Charset charset) throws IOException {
+        Path file = folder.resolve("Source.java");
+        Files.writeString(file, content, charset);
+        return file;
+    }
+
+    private List<String> readAll(final WindowedLineReader reader) {
+        List<String> lines = new ArrayList<>();
+        while (reader.hasNext()) {
+            lines.add(reader.next().toString());
+        }
+        return lines;
+    }
+}